@@ -0,0 +1,81 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.gson.JsonObject;
+import io.supertokens.pluginInterface.jwt.JWTSigningKeyInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the throughput of signing and verifying JWTs with each of the supported algorithms, using the same code
+ * as /recipe/jwt. Run with `./gradlew jmh --args="JWTSigningBenchmark"`.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTSigningBenchmark {
+
+    @Param({ "RS256", "ES256", "EDDSA" })
+    public String algorithm;
+
+    private JWTSigningKey.SupportedAlgorithms supportedAlgorithm;
+    private JWTSigningKey.KeyForSigning keyForSigning;
+    private JsonObject payload;
+    private DecodedJWT jwt;
+
+    @Setup
+    public void setup() throws Exception {
+        this.supportedAlgorithm = JWTSigningKey.SupportedAlgorithms.valueOf(this.algorithm);
+        JWTSigningKeyInfo keyInfo = JWTSigningKey.generateKeyForAlgorithm(this.supportedAlgorithm);
+        Algorithm auth0Algorithm = JWTSigningFunctions.getAuth0Algorithm(this.supportedAlgorithm, keyInfo);
+        this.keyForSigning = new JWTSigningKey.KeyForSigning(keyInfo, auth0Algorithm);
+
+        this.payload = new JsonObject();
+        this.payload.addProperty("sub", "userId");
+        this.payload.addProperty("customClaim", "customValue");
+        this.jwt = JWT.decode(this.sign());
+    }
+
+    @Benchmark
+    public String sign() {
+        return JWTSigningFunctions.createJWTToken(this.supportedAlgorithm, this.keyForSigning, this.payload,
+                "http://localhost", 3600);
+    }
+
+    @Benchmark
+    public void verify() {
+        this.keyForSigning.algorithm.verify(this.jwt);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.session.jwt;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares verifying an access token by splitting it into (and re-joining) Strings, which is how it was done before
+ * 3.8.0, with verifying it on the byte ranges of the token, which is what JWT.verifyJWTAndGetPayload does now. Both
+ * use the same per thread signature engine, so the difference is only in how the token is handled.
+ * Run with `./gradlew jmh --args="JWTVerifyBenchmark -prof gc"`. The gc profiler reports the bytes allocated per
+ * verification as gc.alloc.rate.norm.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTVerifyBenchmark {
+
+    private String token;
+    private String header;
+    private PublicKey publicKey;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        this.publicKey = keyPair.getPublic();
+
+        // roughly the payload of an access token
+        JsonObject payload = new JsonObject();
+        payload.addProperty("sessionHandle", "0d4b3c5a-8b2f-4a31-9c5e-6f1f1a3a8e7d");
+        payload.addProperty("userId", "8ed86166-bfd8-4234-9dfe-abca9606dbd5");
+        payload.addProperty("refreshTokenHash1", Utils.hashSHA256("refreshToken"));
+        payload.add("userData", new JsonObject());
+        payload.addProperty("expiryTime", System.currentTimeMillis() + 3600 * 1000);
+        payload.addProperty("timeCreated", System.currentTimeMillis());
+        payload.addProperty("antiCsrfToken", "antiCsrfToken");
+        this.token = JWT.createJWT(payload, keyPair.getPrivate(), AccessToken.VERSION.V2);
+        this.header = this.token.substring(0, this.token.indexOf('.'));
+    }
+
+    @Benchmark
+    public JsonElement splitStrings() throws Exception {
+        String[] splittedInput = this.token.split("\\.");
+        if (splittedInput.length != 3 || !splittedInput[0].equals(this.header)) {
+            throw new JWT.JWTException("JWT header mismatch");
+        }
+        if (!Utils.verifyWithPublicKey(splittedInput[0] + "." + splittedInput[1], splittedInput[2],
+                this.publicKey)) {
+            throw new JWT.JWTException("JWT verification failed");
+        }
+        return new JsonParser().parse(Utils.convertFromBase64(splittedInput[1]));
+    }
+
+    @Benchmark
+    public JsonElement byteRanges() throws Exception {
+        JWT.ParsedJWT parsedJWT = JWT.parseJWT(this.token);
+        if (parsedJWT.version == null) {
+            throw new JWT.JWTException("JWT header mismatch");
+        }
+        return JWT.verifyJWTAndGetPayload(parsedJWT, parsedJWT.version, null, this.publicKey).payload;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares creating a new crypto engine with getInstance for each operation against reusing the per thread engines
+ * from CryptoPrimitives, for the operations on the session hot paths: hashing refresh tokens (SHA-256), signing and
+ * verifying access tokens (SHA256withRSA) and encrypting refresh tokens (AES-GCM).
+ * Run with `./gradlew jmh --args="CryptoPrimitivesBenchmark"`.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoPrimitivesBenchmark {
+
+    @Param({ "getInstance", "perThread" })
+    public String engines;
+
+    private boolean perThread;
+    private byte[] content;
+    private KeyPair keyPair;
+    private byte[] signature;
+    private SecretKey aesKey;
+
+    @Setup
+    public void setup() throws Exception {
+        this.perThread = this.engines.equals("perThread");
+
+        // roughly the size of a refresh token payload or of the signed part of an access token
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            content.append(Utils.hashSHA256("content" + i));
+        }
+        this.content = content.toString().getBytes(StandardCharsets.UTF_8);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        this.keyPair = generator.generateKeyPair();
+        this.signature = this.sign();
+
+        byte[] aesKey = new byte[32];
+        CryptoPrimitives.getSecureRandom().nextBytes(aesKey);
+        this.aesKey = new SecretKeySpec(aesKey, "AES");
+    }
+
+    @Benchmark
+    public byte[] hashSHA256() throws Exception {
+        MessageDigest digest = this.perThread ? CryptoPrimitives.getSHA256Digest()
+                : MessageDigest.getInstance("SHA-256");
+        return digest.digest(this.content);
+    }
+
+    @Benchmark
+    public byte[] sign() throws Exception {
+        Signature sign = this.getSHA256WithRSASignature();
+        sign.initSign(this.keyPair.getPrivate());
+        sign.update(this.content);
+        return sign.sign();
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        Signature sign = this.getSHA256WithRSASignature();
+        sign.initVerify(this.keyPair.getPublic());
+        sign.update(this.content);
+        return sign.verify(this.signature);
+    }
+
+    @Benchmark
+    public byte[] encryptAESGCM() throws Exception {
+        // a nonce must never be reused with the same key, so each call needs a new one
+        byte[] iv = new byte[12];
+        CryptoPrimitives.getSecureRandom().nextBytes(iv);
+        Cipher cipher = this.perThread ? CryptoPrimitives.getAESGCMCipher() : Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, this.aesKey, new GCMParameterSpec(128, iv));
+        return cipher.doFinal(this.content);
+    }
+
+    private Signature getSHA256WithRSASignature() throws NoSuchAlgorithmException {
+        return this.perThread ? CryptoPrimitives.getSHA256WithRSASignature() : Signature.getInstance("SHA256withRSA");
+    }
+}
@@ -24,6 +24,7 @@ import io.supertokens.cronjobs.deleteExpiredAccessTokenSigningKeys.DeleteExpired
 import io.supertokens.cronjobs.deleteExpiredEmailVerificationTokens.DeleteExpiredEmailVerificationTokens;
 import io.supertokens.cronjobs.deleteExpiredPasswordResetTokens.DeleteExpiredPasswordResetTokens;
 import io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions;
+import io.supertokens.cronjobs.syncSessionRevocations.SyncSessionRevocations;
 import io.supertokens.cronjobs.telemetry.Telemetry;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.jwt.JWTSigningKey;
@@ -31,6 +32,7 @@ import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.session.accessToken.AccessTokenSigningKey;
 import io.supertokens.session.refreshToken.RefreshTokenKey;
+import io.supertokens.session.revocation.SessionRevocationFilter;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.version.Version;
 import io.supertokens.webserver.Webserver;
@@ -198,6 +200,11 @@ public class Main {
             Cronjobs.addCronjob(this, DeleteExpiredAccessTokenSigningKeys.getInstance(this));
         }
 
+        // starts syncing the filter of revoked sessions if access tokens are blacklisted using it
+        if (SessionRevocationFilter.isEnabled(this)) {
+            Cronjobs.addCronjob(this, SyncSessionRevocations.getInstance(this));
+        }
+
         // start web server to accept incoming traffic
         Webserver.getInstance(this).start();
 
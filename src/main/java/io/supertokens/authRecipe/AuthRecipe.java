@@ -20,6 +20,7 @@ import io.supertokens.Main;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.session.Session;
 import io.supertokens.storageLayer.StorageLayer;
 
 import javax.annotation.Nullable;
@@ -65,7 +66,7 @@ public class AuthRecipe {
         // - session: the session will expire anyway
         // - email verification: email verification tokens can be created for any userId anyway
 
-        StorageLayer.getSessionStorage(main).deleteSessionsOfUser(userId);
+        Session.revokeAllSessionsForUser(main, userId);
         StorageLayer.getEmailVerificationStorage(main).deleteEmailVerificationUserInfo(userId);
         StorageLayer.getEmailPasswordStorage(main).deleteEmailPasswordUser(userId);
         StorageLayer.getThirdPartyStorage(main).deleteThirdPartyUser(userId);
@@ -37,6 +37,21 @@ public class CoreConfig {
     @JsonProperty
     private boolean access_token_blacklisting = false;
 
+    @JsonProperty
+    private long access_token_blacklisting_cache_ttl = 0; // in MS
+
+    @JsonProperty
+    private int access_token_blacklisting_cache_size = 10000;
+
+    @JsonProperty
+    private int access_token_revocation_filter_sync_interval = 0; // in seconds
+
+    @JsonProperty
+    private int access_token_verification_cache_size = 0;
+
+    @JsonProperty
+    private long session_refresh_grace_period = 0; // in MS
+
     @JsonProperty
     private double refresh_token_validity = 60 * 2400; // in mins
 
@@ -59,6 +74,12 @@ public class CoreConfig {
     @JsonProperty
     private double access_token_signing_key_update_interval = 168; // in hours
 
+    @JsonProperty
+    private boolean access_token_key_id_in_header = false;
+
+    @JsonProperty
+    private boolean refresh_token_derived_key = false;
+
     @JsonProperty
     private int port = 3567;
 
@@ -71,6 +92,12 @@ public class CoreConfig {
     @JsonProperty
     private String api_keys = null;
 
+    @JsonProperty
+    private int expired_data_cleanup_batch_size = 1000;
+
+    @JsonProperty
+    private int expired_data_cleanup_rows_per_second = 10000;
+
     @JsonProperty
     private boolean disable_telemetry = false;
 
@@ -94,6 +121,26 @@ public class CoreConfig {
         return access_token_blacklisting;
     }
 
+    public long getAccessTokenBlacklistingCacheTTL() {
+        return access_token_blacklisting_cache_ttl;
+    }
+
+    public int getAccessTokenBlacklistingCacheSize() {
+        return access_token_blacklisting_cache_size;
+    }
+
+    public int getAccessTokenRevocationFilterSyncInterval() {
+        return access_token_revocation_filter_sync_interval;
+    }
+
+    public int getAccessTokenVerificationCacheSize() {
+        return access_token_verification_cache_size;
+    }
+
+    public long getSessionRefreshGracePeriod() {
+        return session_refresh_grace_period;
+    }
+
     public long getRefreshTokenValidity() {
         return (long) (refresh_token_validity * 60 * 1000);
     }
@@ -141,6 +188,14 @@ public class CoreConfig {
                 : (10L * 365 * 24 * 3600 * 1000);
     }
 
+    public boolean getAccessTokenKeyIdInHeader() {
+        return access_token_key_id_in_header;
+    }
+
+    public boolean getRefreshTokenDerivedKey() {
+        return refresh_token_derived_key;
+    }
+
     public String[] getAPIKeys() {
         if (api_keys == null) {
             return null;
@@ -168,6 +223,14 @@ public class CoreConfig {
         return max_server_pool_size;
     }
 
+    public int getExpiredDataCleanupBatchSize() {
+        return expired_data_cleanup_batch_size;
+    }
+
+    public int getExpiredDataCleanupRowsPerSecond() {
+        return expired_data_cleanup_rows_per_second;
+    }
+
     public boolean getHttpsEnabled() {
         return webserver_https_enabled;
     }
@@ -208,6 +271,36 @@ public class CoreConfig {
             }
         }
 
+        if (access_token_blacklisting_cache_ttl < 0 || access_token_blacklisting_cache_ttl > 60000) {
+            throw new QuitProgramException(
+                    "'access_token_blacklisting_cache_ttl' must be between 0 and 60000 milliseconds inclusive. The "
+                            + "config file can be found here: " + getConfigFileLocation(main));
+        }
+
+        if (access_token_blacklisting_cache_size < 1) {
+            throw new QuitProgramException(
+                    "'access_token_blacklisting_cache_size' must be >= 1. The config file can be found here: "
+                            + getConfigFileLocation(main));
+        }
+
+        if (access_token_revocation_filter_sync_interval < 0) {
+            throw new QuitProgramException(
+                    "'access_token_revocation_filter_sync_interval' must be >= 0. The config file can be found here: "
+                            + getConfigFileLocation(main));
+        }
+
+        if (access_token_verification_cache_size < 0) {
+            throw new QuitProgramException(
+                    "'access_token_verification_cache_size' must be >= 0. The config file can be found here: "
+                            + getConfigFileLocation(main));
+        }
+
+        if (session_refresh_grace_period < 0 || session_refresh_grace_period > 60000) {
+            throw new QuitProgramException(
+                    "'session_refresh_grace_period' must be between 0 and 60000 milliseconds inclusive. The config "
+                            + "file can be found here: " + getConfigFileLocation(main));
+        }
+
         if (password_reset_token_lifetime <= 0) {
             throw new QuitProgramException("'password_reset_token_lifetime' must be >= 0");
         }
@@ -221,6 +314,18 @@ public class CoreConfig {
                     + getConfigFileLocation(main));
         }
 
+        if (expired_data_cleanup_batch_size <= 0) {
+            throw new QuitProgramException(
+                    "'expired_data_cleanup_batch_size' must be >= 1. The config file can be found here: "
+                            + getConfigFileLocation(main));
+        }
+
+        if (expired_data_cleanup_rows_per_second <= 0) {
+            throw new QuitProgramException(
+                    "'expired_data_cleanup_rows_per_second' must be >= 1. The config file can be found here: "
+                            + getConfigFileLocation(main));
+        }
+
         if (api_keys != null) {
             String[] keys = api_keys.split(",");
             for (int i = 0; i < keys.length; i++) {
@@ -0,0 +1,79 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.cronjobs;
+
+import io.supertokens.Main;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.output.Logging;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+
+/**
+ * Deletes expired rows in batches of expired_data_cleanup_batch_size, so that one cleanup does not keep the database
+ * busy (or hold its write lock) for a long time. Batches are spaced out so that on average no more than
+ * expired_data_cleanup_rows_per_second rows are deleted per second.
+ */
+public class BatchedDeletion {
+
+    public interface BatchDeleter {
+        /**
+         * @return the number of rows deleted, which is at most batchSize
+         */
+        int deleteBatch(int batchSize) throws StorageQueryException;
+    }
+
+    public static Metrics deleteInBatches(Main main, String dataName, BatchDeleter deleter)
+            throws StorageQueryException, InterruptedException {
+        CoreConfig config = Config.getConfig(main);
+        int batchSize = config.getExpiredDataCleanupBatchSize();
+        int rowsPerSecond = config.getExpiredDataCleanupRowsPerSecond();
+
+        long startTime = System.currentTimeMillis();
+        long rowsDeleted = 0;
+        int batches = 0;
+        while (true) {
+            int deleted = deleter.deleteBatch(batchSize);
+            batches++;
+            rowsDeleted += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+            long timeAllowedSoFar = (rowsDeleted * 1000) / rowsPerSecond;
+            long timeToWait = timeAllowedSoFar - (System.currentTimeMillis() - startTime);
+            if (timeToWait > 0) {
+                Thread.sleep(timeToWait);
+            }
+        }
+
+        Metrics metrics = new Metrics(rowsDeleted, batches, System.currentTimeMillis() - startTime);
+        Logging.debug(main, "Deleted " + metrics.rowsDeleted + " expired " + dataName + " in " + metrics.batches
+                + " batch(es) and " + metrics.timeTakenMS + " ms");
+        return metrics;
+    }
+
+    public static class Metrics {
+        public final long rowsDeleted;
+        public final int batches;
+        public final long timeTakenMS;
+
+        Metrics(long rowsDeleted, int batches, long timeTakenMS) {
+            this.rowsDeleted = rowsDeleted;
+            this.batches = batches;
+            this.timeTakenMS = timeTakenMS;
+        }
+    }
+}
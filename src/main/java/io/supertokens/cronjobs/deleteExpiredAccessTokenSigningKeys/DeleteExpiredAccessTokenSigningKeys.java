@@ -20,14 +20,20 @@ import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
 import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
+import io.supertokens.cronjobs.BatchedDeletion;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
 import io.supertokens.session.accessToken.AccessTokenSigningKey;
 
+import javax.annotation.Nullable;
+
 public class DeleteExpiredAccessTokenSigningKeys extends CronTask {
 
     public static final String RESOURCE_KEY = "io.supertokens.cronjobs.deleteExpiredAccessTokenSigningKeys.DeleteExpiredAccessTokenSigningKeys";
 
+    @Nullable
+    private volatile BatchedDeletion.Metrics lastRunMetrics = null;
+
     private DeleteExpiredAccessTokenSigningKeys(Main main) {
         super("DeleteExpiredAccessTokenSigningKeys", main);
     }
@@ -43,7 +49,16 @@ public class DeleteExpiredAccessTokenSigningKeys extends CronTask {
 
     @Override
     protected void doTask() throws Exception {
-        AccessTokenSigningKey.getInstance(main).cleanExpiredAccessTokenSigningKeys();
+        lastRunMetrics = AccessTokenSigningKey.getInstance(main).cleanExpiredAccessTokenSigningKeys();
+    }
+
+    /**
+     * @return what the last run of this cronjob deleted, or null if it has not finished a run yet or
+     * if the signing key is not dynamic
+     */
+    @Nullable
+    public BatchedDeletion.Metrics getLastRunMetrics() {
+        return lastRunMetrics;
     }
 
     @Override
@@ -18,16 +18,23 @@ package io.supertokens.cronjobs.deleteExpiredEmailVerificationTokens;
 
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.cronjobs.BatchedDeletion;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.emailverification.sqlStorage.EmailVerificationSQLStorage;
 import io.supertokens.storageLayer.StorageLayer;
 
+import javax.annotation.Nullable;
+
 public class DeleteExpiredEmailVerificationTokens extends CronTask {
 
     public static final String RESOURCE_KEY = "io.supertokens.cronjobs.deleteExpiredEmailVerificationTokens"
             + ".DeleteExpiredEmailVerificationTokens";
 
+    @Nullable
+    private volatile BatchedDeletion.Metrics lastRunMetrics = null;
+
     private DeleteExpiredEmailVerificationTokens(Main main) {
         super("RemoveOldEmailVerificationTokens", main);
     }
@@ -46,7 +53,17 @@ public class DeleteExpiredEmailVerificationTokens extends CronTask {
         if (StorageLayer.getStorage(this.main).getType() != STORAGE_TYPE.SQL) {
             return;
         }
-        StorageLayer.getEmailVerificationStorage(this.main).deleteExpiredEmailVerificationTokens();
+        EmailVerificationSQLStorage storage = StorageLayer.getEmailVerificationStorage(this.main);
+        lastRunMetrics = BatchedDeletion.deleteInBatches(main, "email verification tokens",
+                storage::deleteExpiredEmailVerificationTokens);
+    }
+
+    /**
+     * @return what the last run of this cronjob deleted, or null if it has not finished a run yet
+     */
+    @Nullable
+    public BatchedDeletion.Metrics getLastRunMetrics() {
+        return lastRunMetrics;
     }
 
     @Override
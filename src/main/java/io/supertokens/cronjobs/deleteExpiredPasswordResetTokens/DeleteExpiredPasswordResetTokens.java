@@ -18,16 +18,23 @@ package io.supertokens.cronjobs.deleteExpiredPasswordResetTokens;
 
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.cronjobs.BatchedDeletion;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.emailpassword.sqlStorage.EmailPasswordSQLStorage;
 import io.supertokens.storageLayer.StorageLayer;
 
+import javax.annotation.Nullable;
+
 public class DeleteExpiredPasswordResetTokens extends CronTask {
 
     public static final String RESOURCE_KEY = "io.supertokens.cronjobs.deleteExpiredPasswordResetTokens"
             + ".DeleteExpiredPasswordResetTokens";
 
+    @Nullable
+    private volatile BatchedDeletion.Metrics lastRunMetrics = null;
+
     private DeleteExpiredPasswordResetTokens(Main main) {
         super("RemoveOldPasswordResetTokens", main);
     }
@@ -46,7 +53,17 @@ public class DeleteExpiredPasswordResetTokens extends CronTask {
         if (StorageLayer.getStorage(this.main).getType() != STORAGE_TYPE.SQL) {
             return;
         }
-        StorageLayer.getEmailPasswordStorage(this.main).deleteExpiredPasswordResetTokens();
+        EmailPasswordSQLStorage storage = StorageLayer.getEmailPasswordStorage(this.main);
+        lastRunMetrics = BatchedDeletion.deleteInBatches(main, "password reset tokens",
+                storage::deleteExpiredPasswordResetTokens);
+    }
+
+    /**
+     * @return what the last run of this cronjob deleted, or null if it has not finished a run yet
+     */
+    @Nullable
+    public BatchedDeletion.Metrics getLastRunMetrics() {
+        return lastRunMetrics;
     }
 
     @Override
@@ -18,14 +18,23 @@ package io.supertokens.cronjobs.deleteExpiredSessions;
 
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.cronjobs.BatchedDeletion;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.pluginInterface.session.SessionStorage;
+import io.supertokens.session.revocation.SessionRevocationFilter;
 import io.supertokens.storageLayer.StorageLayer;
 
+import javax.annotation.Nullable;
+
 public class DeleteExpiredSessions extends CronTask {
 
     public static final String RESOURCE_KEY = "io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions";
 
+    @Nullable
+    private volatile BatchedDeletion.Metrics lastRunMetrics = null;
+
     private DeleteExpiredSessions(Main main) {
         super("RemoveOldSessions", main);
     }
@@ -40,7 +49,26 @@ public class DeleteExpiredSessions extends CronTask {
 
     @Override
     protected void doTask() throws Exception {
-        StorageLayer.getSessionStorage(this.main).deleteAllExpiredSessions();
+        SessionStorage storage = StorageLayer.getSessionStorage(this.main);
+        lastRunMetrics = BatchedDeletion.deleteInBatches(main, "sessions", storage::deleteExpiredSessions);
+
+        // the revocation log is only written to when the filter is enabled, so storages that never use it do not
+        // need to support it.
+        if (SessionRevocationFilter.isEnabled(main)) {
+            // the revocation log only needs to go back as far as the oldest access token that can still be valid
+            long revocationLogStart = System.currentTimeMillis() - Config.getConfig(main).getAccessTokenValidity()
+                    - SessionRevocationFilter.SYNC_OVERLAP_MS;
+            BatchedDeletion.deleteInBatches(main, "session revocation log entries",
+                    limit -> storage.deleteFromSessionRevocationLogBefore(revocationLogStart, limit));
+        }
+    }
+
+    /**
+     * @return what the last run of this cronjob deleted, or null if it has not finished a run yet
+     */
+    @Nullable
+    public BatchedDeletion.Metrics getLastRunMetrics() {
+        return lastRunMetrics;
     }
 
     @Override
@@ -0,0 +1,63 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.cronjobs.syncSessionRevocations;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.cronjobs.CronTask;
+import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.session.revocation.SessionRevocationFilter;
+
+public class SyncSessionRevocations extends CronTask {
+
+    public static final String RESOURCE_KEY = "io.supertokens.cronjobs.syncSessionRevocations.SyncSessionRevocations";
+
+    private SyncSessionRevocations(Main main) {
+        super("SyncSessionRevocations", main);
+    }
+
+    public static SyncSessionRevocations getInstance(Main main) {
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor().getResource(RESOURCE_KEY);
+        if (instance == null) {
+            instance = main.getResourceDistributor().setResource(RESOURCE_KEY, new SyncSessionRevocations(main));
+        }
+        return (SyncSessionRevocations) instance;
+    }
+
+    @Override
+    protected void doTask() throws Exception {
+        SessionRevocationFilter.getInstance(main).sync();
+    }
+
+    @Override
+    public int getIntervalTimeSeconds() {
+        if (Main.isTesting) {
+            Integer interval = CronTaskTest.getInstance(main).getIntervalInSeconds(RESOURCE_KEY);
+            if (interval != null) {
+                return interval;
+            }
+        }
+        return Config.getConfig(main).getAccessTokenRevocationFilterSyncInterval();
+    }
+
+    @Override
+    public int getInitialWaitTimeSeconds() {
+        // the filter is not used until the first sync, so we do that right away
+        return 0;
+    }
+}
@@ -17,33 +17,56 @@
 package io.supertokens.inmemorydb;
 
 import io.supertokens.ResourceDistributor;
+import io.supertokens.inmemorydb.config.Config;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ConnectionPool extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.inmemorydb.ConnectionPool";
     private static String URL = "jdbc:sqlite:file::memory:?cache=shared";
+    // how long getConnection waits for a free connection before giving up
+    private static final long CONNECTION_TIMEOUT_MS = 10000;
 
     // we use this to keep all the information in memory across requests.
     private Connection alwaysAlive = null;
     private Lock lock = new Lock();
 
-    public ConnectionPool() throws SQLException {
+    // a connection can only be borrowed by someone who holds a permit, which bounds the number of open connections
+    private final Semaphore permits;
+    // connections that have been returned and can be reused. We use it as a stack so that the most recently used
+    // connection is handed out next.
+    private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed = false;
+
+    private final LongAdder numberOfBorrows = new LongAdder();
+    private final LongAdder totalBorrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong(0);
+
+    public ConnectionPool(int poolSize) throws SQLException {
         this.alwaysAlive = DriverManager.getConnection(URL);
+        this.permits = new Semaphore(poolSize, true);
     }
 
     static void initPool(Start start) throws SQLException {
-        start.getResourceDistributor().setResource(RESOURCE_KEY, new ConnectionPool());
+        start.getResourceDistributor().setResource(RESOURCE_KEY,
+                new ConnectionPool(Config.getConfig(start).getConnectionPoolSize()));
     }
 
     public static Connection getConnection(Start start) throws SQLException {
         if (!start.enabled) {
             throw new SQLException("Storage layer disabled");
         }
-        return new ConnectionWithLocks(DriverManager.getConnection(URL), ConnectionPool.getInstance(start));
+        ConnectionPool pool = ConnectionPool.getInstance(start);
+        return new ConnectionWithLocks(pool.borrow(), pool);
     }
 
     private static ConnectionPool getInstance(Start start) {
@@ -54,13 +77,92 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
         if (getInstance(start) == null) {
             return;
         }
+        ConnectionPool pool = getInstance(start);
+        pool.closed = true;
+        PooledConnection idle;
+        while ((idle = pool.idleConnections.pollFirst()) != null) {
+            idle.close();
+        }
+        closeQuietly(pool.alwaysAlive);
+    }
+
+    public static BorrowWaitMetrics getBorrowWaitMetrics(Start start) {
+        ConnectionPool pool = getInstance(start);
+        return new BorrowWaitMetrics(pool.numberOfBorrows.sum(), pool.totalBorrowWaitNanos.sum(),
+                pool.maxBorrowWaitNanos.get());
+    }
+
+    private PooledConnection borrow() throws SQLException {
+        long waitStart = System.nanoTime();
+        try {
+            if (!this.permits.tryAcquire(CONNECTION_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + CONNECTION_TIMEOUT_MS + "ms waiting for a connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        long waitTime = System.nanoTime() - waitStart;
+        this.numberOfBorrows.increment();
+        this.totalBorrowWaitNanos.add(waitTime);
+        this.maxBorrowWaitNanos.accumulateAndGet(waitTime, Math::max);
+
+        try {
+            PooledConnection con;
+            while ((con = this.idleConnections.pollFirst()) != null) {
+                if (isUsable(con.connection)) {
+                    return con;
+                }
+                con.close();
+            }
+            return new PooledConnection(DriverManager.getConnection(URL));
+        } catch (SQLException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    void release(PooledConnection pooledConnection) {
+        Connection con = pooledConnection.connection;
+        boolean reusable = !this.closed;
+        if (reusable) {
+            try {
+                // transactions are expected to reset this themselves, but we do not want to hand out a connection
+                // that is in the middle of one.
+                if (!con.getAutoCommit()) {
+                    con.rollback();
+                    con.setAutoCommit(true);
+                }
+                con.clearWarnings();
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+        if (reusable) {
+            this.idleConnections.offerFirst(pooledConnection);
+        } else {
+            pooledConnection.close();
+        }
+        this.permits.release();
+    }
+
+    private static boolean isUsable(Connection con) {
         try {
-            getInstance(start).alwaysAlive.close();
+            return con.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection con) {
+        try {
+            con.close();
         } catch (Exception ignored) {
         }
     }
 
-    public void lock(String key) {
+    public void lock(String key) throws SQLException {
         this.lock.lock(key);
     }
 
@@ -68,4 +170,16 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
         this.lock.unlock(key);
     }
 
+    public static class BorrowWaitMetrics {
+        public final long numberOfBorrows;
+        public final long totalWaitTimeNanos;
+        public final long maxWaitTimeNanos;
+
+        BorrowWaitMetrics(long numberOfBorrows, long totalWaitTimeNanos, long maxWaitTimeNanos) {
+            this.numberOfBorrows = numberOfBorrows;
+            this.totalWaitTimeNanos = totalWaitTimeNanos;
+            this.maxWaitTimeNanos = maxWaitTimeNanos;
+        }
+    }
+
 }
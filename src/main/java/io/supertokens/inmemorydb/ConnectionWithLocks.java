@@ -25,11 +25,13 @@ import java.util.concurrent.Executor;
 
 public class ConnectionWithLocks implements Connection {
 
+    private PooledConnection pooledConnection;
     private Connection con;
     private ConnectionPool connectionPool;
     private List<String> lockedKeys = new ArrayList<>();
+    private boolean closed = false;
 
-    public void lock(String key) {
+    public void lock(String key) throws SQLException {
         connectionPool.lock(key);
         this.lockedKeys.add(key);
     }
@@ -41,8 +43,9 @@ public class ConnectionWithLocks implements Connection {
         this.lockedKeys.clear();
     }
 
-    public ConnectionWithLocks(Connection con, ConnectionPool connectionPool) {
-        this.con = con;
+    ConnectionWithLocks(PooledConnection pooledConnection, ConnectionPool connectionPool) {
+        this.pooledConnection = pooledConnection;
+        this.con = pooledConnection.connection;
         this.connectionPool = connectionPool;
     }
 
@@ -53,7 +56,7 @@ public class ConnectionWithLocks implements Connection {
 
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
-        return con.prepareStatement(sql);
+        return pooledConnection.prepareStatement(sql);
     }
 
     @Override
@@ -96,8 +99,13 @@ public class ConnectionWithLocks implements Connection {
 
     @Override
     public void close() throws SQLException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
         try {
-            con.close();
+            // the underlying connection goes back to the pool to be reused
+            connectionPool.release(pooledConnection);
         } finally {
             this.unlockAllLocks();
         }
@@ -105,7 +113,7 @@ public class ConnectionWithLocks implements Connection {
 
     @Override
     public boolean isClosed() throws SQLException {
-        return con.isClosed();
+        return this.closed || con.isClosed();
     }
 
     @Override
@@ -16,34 +16,108 @@
 
 package io.supertokens.inmemorydb;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/*
+ * Row level locks for the in memory db. Each key has its own lock node, so unlocking a key only wakes up threads
+ * that are waiting for that key. A node is kept in the map only while someone holds or waits for it.
+ * */
 class Lock {
 
-    private Set<String> lockedKeys = new HashSet<>();
-    private final Object waitMutex = new Object();
+    // keys are only held for the duration of a transaction, so waiting longer than this most likely means that two
+    // transactions are waiting on each other.
+    static final long LOCK_WAIT_TIMEOUT_MS = 10000;
+    // added randomly to the timeout so that transactions that are waiting on each other do not give up at the same
+    // time, and then deadlock again when they are retried.
+    private static final long LOCK_WAIT_TIMEOUT_JITTER_MS = 5000;
 
-    void lock(String name) {
-        synchronized (this.waitMutex) {
-            while (true) {
-                if (!this.lockedKeys.contains(name)) {
-                    this.lockedKeys.add(name);
-                    return;
-                }
+    private final ConcurrentHashMap<String, KeyLock> keyLocks = new ConcurrentHashMap<>();
 
-                try {
-                    this.waitMutex.wait();
-                } catch (InterruptedException ignored) {
-                }
+    void lock(String name) throws SQLException {
+        KeyLock keyLock = this.addReference(name);
+        boolean acquired = false;
+        try {
+            acquired = keyLock.acquire(
+                    LOCK_WAIT_TIMEOUT_MS + ThreadLocalRandom.current().nextLong(LOCK_WAIT_TIMEOUT_JITTER_MS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for lock on " + name, e);
+        } finally {
+            if (!acquired) {
+                this.removeReference(name);
             }
         }
+        if (!acquired) {
+            // Start.startTransaction retries the transaction when it sees this
+            throw new SQLTransactionRollbackException(
+                    "Deadlock found when trying to get lock on " + name + ". Try restarting transaction");
+        }
     }
 
     void unlock(String name) {
-        synchronized (this.waitMutex) {
-            this.lockedKeys.remove(name);
-            this.waitMutex.notifyAll();
+        KeyLock keyLock = this.keyLocks.get(name);
+        if (keyLock == null) {
+            return;
+        }
+        keyLock.release();
+        this.removeReference(name);
+    }
+
+    private KeyLock addReference(String name) {
+        // compute runs atomically per key, so the reference count does not need its own synchronisation
+        return this.keyLocks.compute(name, (key, existing) -> {
+            KeyLock keyLock = existing == null ? new KeyLock() : existing;
+            keyLock.references++;
+            return keyLock;
+        });
+    }
+
+    private void removeReference(String name) {
+        this.keyLocks.computeIfPresent(name, (key, existing) -> {
+            existing.references--;
+            return existing.references == 0 ? null : existing;
+        });
+    }
+
+    private static class KeyLock {
+        private final ReentrantLock mutex = new ReentrantLock();
+        private final Condition released = mutex.newCondition();
+        // this is not the same as mutex being held, since a key is locked and unlocked in different calls (and
+        // possibly by different threads).
+        private boolean held = false;
+        private int references = 0;
+
+        boolean acquire(long timeoutMs) throws InterruptedException {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            this.mutex.lock();
+            try {
+                while (this.held) {
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    remainingNanos = this.released.awaitNanos(remainingNanos);
+                }
+                this.held = true;
+                return true;
+            } finally {
+                this.mutex.unlock();
+            }
+        }
+
+        void release() {
+            this.mutex.lock();
+            try {
+                this.held = false;
+                this.released.signal();
+            } finally {
+                this.mutex.unlock();
+            }
         }
     }
 
@@ -0,0 +1,82 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.inmemorydb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * A connection that lives in the ConnectionPool, along with the statements that have been prepared on it. A pooled
+ * connection is only used by one thread at a time, so the statement cache is not synchronised.
+ * */
+class PooledConnection {
+
+    private static final int MAX_CACHED_STATEMENTS = 64;
+
+    final Connection connection;
+
+    // ordered by access, so that the least recently used statement is evicted first
+    private final Map<String, CachedPreparedStatement> statements = new LinkedHashMap<String, CachedPreparedStatement>(
+            16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPreparedStatement> eldest) {
+            if (size() <= MAX_CACHED_STATEMENTS) {
+                return false;
+            }
+            try {
+                eldest.getValue().evict();
+            } catch (SQLException ignored) {
+            }
+            return true;
+        }
+    };
+
+    PooledConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+        CachedPreparedStatement cached = this.statements.get(sql);
+        if (cached != null && cached.isInUse()) {
+            // the same query is already open on this connection, so we give out a statement that is not cached.
+            return this.connection.prepareStatement(sql);
+        }
+        if (cached == null || cached.isEvicted()) {
+            cached = new CachedPreparedStatement(this.connection.prepareStatement(sql));
+            this.statements.put(sql, cached);
+        }
+        cached.borrow();
+        return cached;
+    }
+
+    void close() {
+        for (CachedPreparedStatement statement : this.statements.values()) {
+            try {
+                statement.evict();
+            } catch (SQLException ignored) {
+            }
+        }
+        this.statements.clear();
+        try {
+            this.connection.close();
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -93,8 +93,8 @@ public class Start implements SessionSQLStorage, EmailPasswordSQLStorage, EmailV
     }
 
     @Override
-    public void loadConfig(String ignored) {
-        Config.loadConfig(this);
+    public void loadConfig(String configFilePath) {
+        Config.loadConfig(this, configFilePath);
     }
 
     @Override
@@ -126,8 +126,10 @@ public class Start implements SessionSQLStorage, EmailPasswordSQLStorage, EmailV
             try {
                 return startTransactionHelper(logic);
             } catch (SQLException | StorageQueryException e) {
-                if ((e instanceof SQLTransactionRollbackException || e.getMessage().toLowerCase().contains("deadlock"))
-                        && tries < 3) {
+                // transaction logic that runs its own queries reports a rollback as a StorageQueryException
+                if ((e instanceof SQLTransactionRollbackException
+                        || e.getCause() instanceof SQLTransactionRollbackException
+                        || e.getMessage().toLowerCase().contains("deadlock")) && tries < 3) {
                     ProcessState.getInstance(this.main).addState(ProcessState.PROCESS_STATE.DEADLOCK_FOUND, e);
                     continue; // this because deadlocks are not necessarily a result of faulty logic. They can
                     // happen
@@ -223,6 +225,15 @@ public class Start implements SessionSQLStorage, EmailPasswordSQLStorage, EmailV
         }
     }
 
+    @Override
+    public int removeAccessTokenSigningKeysBefore(long time, int limit) throws StorageQueryException {
+        try {
+            return SessionQueries.removeAccessTokenSigningKeysBefore(this, time, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public KeyValueInfo getRefreshTokenSigningKey_Transaction(TransactionConnection con) throws StorageQueryException {
         Connection sqlCon = (Connection) con.getConnection();
@@ -293,6 +304,24 @@ public class Start implements SessionSQLStorage, EmailPasswordSQLStorage, EmailV
         }
     }
 
+    @Override
+    public String[] deleteSessionsAndGetHandles(String[] sessionHandles) throws StorageQueryException {
+        try {
+            return SessionQueries.deleteSessionsAndGetHandles(this, sessionHandles);
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
+        }
+    }
+
+    @Override
+    public String[] deleteSessionsOfUserAndGetHandles(String userId) throws StorageQueryException {
+        try {
+            return SessionQueries.deleteSessionsOfUserAndGetHandles(this, userId);
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
+        }
+    }
+
     @Override
     public String[] getAllSessionHandlesForUser(String userId) throws StorageQueryException {
         try {
@@ -311,6 +340,42 @@ public class Start implements SessionSQLStorage, EmailPasswordSQLStorage, EmailV
         }
     }
 
+    @Override
+    public int deleteExpiredSessions(int limit) throws StorageQueryException {
+        try {
+            return SessionQueries.deleteExpiredSessions(this, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public void addToSessionRevocationLog(String[] sessionHandles, long time) throws StorageQueryException {
+        try {
+            SessionQueries.addToSessionRevocationLog(this, sessionHandles, time);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public String[] getSessionHandlesInRevocationLogSince(long time) throws StorageQueryException {
+        try {
+            return SessionQueries.getSessionHandlesInRevocationLogSince(this, time);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public int deleteFromSessionRevocationLogBefore(long time, int limit) throws StorageQueryException {
+        try {
+            return SessionQueries.deleteFromSessionRevocationLogBefore(this, time, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public KeyValueInfo getKeyValue(String key) throws StorageQueryException {
         try {
@@ -343,6 +408,25 @@ public class Start implements SessionSQLStorage, EmailPasswordSQLStorage, EmailV
         }
     }
 
+    @Override
+    public SessionInfo[] getSessions(String[] sessionHandles) throws StorageQueryException {
+        try {
+            return SessionQueries.getSessions(this, sessionHandles);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public String[] getSessionHandlesForUser(String userId, int limit, @Nullable String fromSessionHandle)
+            throws StorageQueryException {
+        try {
+            return SessionQueries.getSessionHandlesForUser(this, userId, limit, fromSessionHandle);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public int updateSession(String sessionHandle, @Nullable JsonObject sessionData, @Nullable JsonObject jwtPayload)
             throws StorageQueryException {
@@ -613,6 +697,15 @@ public class Start implements SessionSQLStorage, EmailPasswordSQLStorage, EmailV
         }
     }
 
+    @Override
+    public int deleteExpiredPasswordResetTokens(int limit) throws StorageQueryException {
+        try {
+            return EmailPasswordQueries.deleteExpiredPasswordResetTokens(this, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public EmailVerificationTokenInfo[] getAllEmailVerificationTokenInfoForUser_Transaction(TransactionConnection con,
             String userId, String email) throws StorageQueryException {
@@ -717,6 +810,15 @@ public class Start implements SessionSQLStorage, EmailPasswordSQLStorage, EmailV
         }
     }
 
+    @Override
+    public int deleteExpiredEmailVerificationTokens(int limit) throws StorageQueryException {
+        try {
+            return EmailVerificationQueries.deleteExpiredEmailVerificationTokens(this, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public EmailVerificationTokenInfo[] getAllEmailVerificationTokenInfoForUser(String userId, String email)
             throws StorageQueryException {
@@ -16,28 +16,40 @@
 
 package io.supertokens.inmemorydb.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import io.supertokens.ResourceDistributor;
 import io.supertokens.inmemorydb.Start;
 import io.supertokens.pluginInterface.exceptions.QuitProgramFromPluginException;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
 public class Config extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.inmemorydb.config.Config";
     private final SQLiteConfig config;
+    private final ConcurrentHashMap<String, String> queries = new ConcurrentHashMap<>();
 
-    private Config() {
-        this.config = new SQLiteConfig();
+    private Config(String configFilePath) {
+        try {
+            this.config = loadSQLiteConfig(configFilePath);
+        } catch (IOException e) {
+            throw new QuitProgramFromPluginException(e);
+        }
     }
 
     private static Config getInstance(Start start) {
         return (Config) start.getResourceDistributor().getResource(RESOURCE_KEY);
     }
 
-    public static void loadConfig(Start start) {
+    public static void loadConfig(Start start, String configFilePath) {
         if (getInstance(start) != null) {
             return;
         }
-        start.getResourceDistributor().setResource(RESOURCE_KEY, new Config());
+        start.getResourceDistributor().setResource(RESOURCE_KEY, new Config(configFilePath));
     }
 
     public static SQLiteConfig getConfig(Start start) {
@@ -47,4 +59,19 @@ public class Config extends ResourceDistributor.SingletonResource {
         return getInstance(start).config;
     }
 
+    /**
+     * Queries only depend on the table names in the config, so each one is built once and the same string is then
+     * used to look up its prepared statement. queryName must be unique across all the queries built this way.
+     */
+    public static String getQuery(Start start, String queryName, Function<SQLiteConfig, String> queryBuilder) {
+        return getInstance(start).queries.computeIfAbsent(queryName, name -> queryBuilder.apply(getConfig(start)));
+    }
+
+    private SQLiteConfig loadSQLiteConfig(String configFilePath) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+        SQLiteConfig config = mapper.readValue(new File(configFilePath), SQLiteConfig.class);
+        config.validateAndInitialise();
+        return config;
+    }
+
 }
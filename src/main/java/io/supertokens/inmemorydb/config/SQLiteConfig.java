@@ -16,8 +16,26 @@
 
 package io.supertokens.inmemorydb.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.supertokens.pluginInterface.exceptions.QuitProgramFromPluginException;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class SQLiteConfig {
 
+    @JsonProperty
+    private int sqlite_connection_pool_size = 10;
+
+    public int getConnectionPoolSize() {
+        return sqlite_connection_pool_size;
+    }
+
+    void validateAndInitialise() {
+        if (getConnectionPoolSize() <= 0) {
+            throw new QuitProgramFromPluginException("'sqlite_connection_pool_size' must be >= 1");
+        }
+    }
+
     public String getKeyValueTable() {
         return "key_value";
     }
@@ -34,6 +52,10 @@ public class SQLiteConfig {
         return "session_info";
     }
 
+    public String getSessionRevocationLogTable() {
+        return "session_revocation_log";
+    }
+
     public String getEmailPasswordUsersTable() {
         return "emailpassword_users";
     }
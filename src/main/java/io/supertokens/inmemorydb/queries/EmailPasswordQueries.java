@@ -68,6 +68,19 @@ public class EmailPasswordQueries {
         }
     }
 
+    public static int deleteExpiredPasswordResetTokens(Start start, int limit) throws SQLException {
+        String QUERY = "DELETE FROM " + Config.getConfig(start).getPasswordResetTokensTable()
+                + " WHERE rowid IN (SELECT rowid FROM " + Config.getConfig(start).getPasswordResetTokensTable()
+                + " WHERE token_expiry < ? LIMIT ?)";
+
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pst = con.prepareStatement(QUERY)) {
+            pst.setLong(1, System.currentTimeMillis());
+            pst.setInt(2, limit);
+            return pst.executeUpdate();
+        }
+    }
+
     public static void deleteExpiredEmailVerificationTokens(Start start) throws SQLException {
         String QUERY = "DELETE FROM " + Config.getConfig(start).getEmailVerificationTokensTable()
                 + " WHERE token_expiry < ?";
@@ -62,6 +62,19 @@ public class EmailVerificationQueries {
         }
     }
 
+    public static int deleteExpiredEmailVerificationTokens(Start start, int limit) throws SQLException {
+        String QUERY = "DELETE FROM " + Config.getConfig(start).getEmailVerificationTokensTable()
+                + " WHERE rowid IN (SELECT rowid FROM " + Config.getConfig(start).getEmailVerificationTokensTable()
+                + " WHERE token_expiry < ? LIMIT ?)";
+
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pst = con.prepareStatement(QUERY)) {
+            pst.setLong(1, System.currentTimeMillis());
+            pst.setInt(2, limit);
+            return pst.executeUpdate();
+        }
+    }
+
     public static void updateUsersIsEmailVerified_Transaction(Start start, Connection con, String userId, String email,
             boolean isEmailVerified) throws SQLException {
 
@@ -111,6 +111,35 @@ public class GeneralQueries {
             }
         }
 
+        // these are created even if the table already exists, so that tables created before these indexes were added
+        // also get them. Finding sessions of a user and removing expired sessions do a full table scan without them.
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pstIndex = con
+                        .prepareStatement(SessionQueries.getQueryToCreateSessionInfoUserIdIndex(start))) {
+            pstIndex.executeUpdate();
+        }
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pstIndex = con
+                        .prepareStatement(SessionQueries.getQueryToCreateSessionInfoExpiryIndex(start))) {
+            pstIndex.executeUpdate();
+        }
+
+        if (!doesTableExists(start, Config.getConfig(start).getSessionRevocationLogTable())) {
+            ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.CREATING_NEW_TABLE, null);
+            try (Connection con = ConnectionPool.getConnection(start);
+                    PreparedStatement pst = con
+                            .prepareStatement(SessionQueries.getQueryToCreateSessionRevocationLogTable(start))) {
+                pst.executeUpdate();
+            }
+
+            // index
+            try (Connection con = ConnectionPool.getConnection(start);
+                    PreparedStatement pstIndex = con
+                            .prepareStatement(SessionQueries.getQueryToCreateSessionRevocationLogTimeIndex(start))) {
+                pstIndex.executeUpdate();
+            }
+        }
+
         if (!doesTableExists(start, Config.getConfig(start).getEmailPasswordUsersTable())) {
             ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.CREATING_NEW_TABLE, null);
             try (Connection con = ConnectionPool.getConnection(start);
@@ -22,20 +22,28 @@ import io.supertokens.inmemorydb.ConnectionPool;
 import io.supertokens.inmemorydb.ConnectionWithLocks;
 import io.supertokens.inmemorydb.Start;
 import io.supertokens.inmemorydb.config.Config;
+import io.supertokens.inmemorydb.config.SQLiteConfig;
 import io.supertokens.pluginInterface.KeyValueInfo;
 import io.supertokens.pluginInterface.RowMapper;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.session.SessionInfo;
 
+import javax.annotation.Nullable;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class SessionQueries {
 
+    // by default, SQLite does not allow more than 999 parameters in a query
+    private static final int MAX_HANDLES_PER_QUERY = 500;
+
     static String getQueryToCreateSessionInfoTable(Start start) {
         return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getSessionInfoTable() + " ("
                 + "session_handle VARCHAR(255) NOT NULL," + "user_id VARCHAR(128) NOT NULL,"
@@ -44,17 +52,46 @@ public class SessionQueries {
                 + "jwt_user_payload TEXT," + "PRIMARY KEY(session_handle)" + " );";
     }
 
+    static String getQueryToCreateSessionInfoUserIdIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS session_info_user_id_index ON "
+                + Config.getConfig(start).getSessionInfoTable() + "(user_id);";
+    }
+
+    static String getQueryToCreateSessionInfoExpiryIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS session_info_expiry_index ON "
+                + Config.getConfig(start).getSessionInfoTable() + "(expires_at);";
+    }
+
+    static String getQueryToCreateSessionRevocationLogTable(Start start) {
+        // a session handle can be logged more than once, so it is not the primary key
+        return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getSessionRevocationLogTable() + " ("
+                + "session_handle VARCHAR(255) NOT NULL," + "revoked_at_time BIGINT UNSIGNED NOT NULL" + " );";
+    }
+
+    static String getQueryToCreateSessionRevocationLogTimeIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS session_revocation_log_time_index ON "
+                + Config.getConfig(start).getSessionRevocationLogTable() + "(revoked_at_time);";
+    }
+
     static String getQueryToCreateAccessTokenSigningKeysTable(Start start) {
         return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getAccessTokenSigningKeysTable() + " ("
                 + "created_at_time BIGINT UNSIGNED NOT NULL," + "value TEXT," + "PRIMARY KEY(created_at_time)" + " );";
     }
 
+    private static final String SESSION_INFO_COLUMNS = "session_handle, user_id, refresh_token_hash_2, session_data, "
+            + "expires_at, created_at_time, jwt_user_payload";
+
+    private static String getQueryToGetSessionInfo(SQLiteConfig config) {
+        return "SELECT " + SESSION_INFO_COLUMNS + " FROM " + config.getSessionInfoTable() + " WHERE session_handle = ?";
+    }
+
     public static void createNewSession(Start start, String sessionHandle, String userId, String refreshTokenHash2,
             JsonObject userDataInDatabase, long expiry, JsonObject userDataInJWT, long createdAtTime)
             throws SQLException {
-        String QUERY = "INSERT INTO " + Config.getConfig(start).getSessionInfoTable()
+        String QUERY = Config.getQuery(start, "createNewSession", config -> "INSERT INTO "
+                + config.getSessionInfoTable()
                 + "(session_handle, user_id, refresh_token_hash_2, session_data, expires_at, jwt_user_payload, "
-                + "created_at_time)" + " VALUES(?, ?, ?, ?, ?, ?, ?)";
+                + "created_at_time)" + " VALUES(?, ?, ?, ?, ?, ?, ?)");
 
         try (Connection con = ConnectionPool.getConnection(start);
                 PreparedStatement pst = con.prepareStatement(QUERY)) {
@@ -74,9 +111,7 @@ public class SessionQueries {
 
         ((ConnectionWithLocks) con).lock(sessionHandle);
 
-        String QUERY = "SELECT session_handle, user_id, refresh_token_hash_2, session_data, expires_at, "
-                + "created_at_time, jwt_user_payload FROM " + Config.getConfig(start).getSessionInfoTable()
-                + " WHERE session_handle = ?";
+        String QUERY = Config.getQuery(start, "getSessionInfo", SessionQueries::getQueryToGetSessionInfo);
         try (PreparedStatement pst = con.prepareStatement(QUERY)) {
             pst.setString(1, sessionHandle);
             ResultSet result = pst.executeQuery();
@@ -89,8 +124,9 @@ public class SessionQueries {
 
     public static void updateSessionInfo_Transaction(Start start, Connection con, String sessionHandle,
             String refreshTokenHash2, long expiry) throws SQLException {
-        String QUERY = "UPDATE " + Config.getConfig(start).getSessionInfoTable()
-                + " SET refresh_token_hash_2 = ?, expires_at = ?" + " WHERE session_handle = ?";
+        String QUERY = Config.getQuery(start, "updateSessionInfo", config -> "UPDATE "
+                + config.getSessionInfoTable() + " SET refresh_token_hash_2 = ?, expires_at = ?"
+                + " WHERE session_handle = ?");
 
         try (PreparedStatement pst = con.prepareStatement(QUERY)) {
             pst.setString(1, refreshTokenHash2);
@@ -136,6 +172,105 @@ public class SessionQueries {
         }
     }
 
+    /**
+     * Deletes the sessions that exist out of the given ones, and returns their handles. This is done in a single
+     * transaction, since our version of SQLite does not support DELETE ... RETURNING.
+     */
+    public static String[] deleteSessionsAndGetHandles(Start start, String[] sessionHandles)
+            throws StorageQueryException, StorageTransactionLogicException {
+        if (sessionHandles.length == 0) {
+            return new String[0];
+        }
+        return start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                Set<String> existingHandles = new HashSet<>();
+                for (int from = 0; from < sessionHandles.length; from += MAX_HANDLES_PER_QUERY) {
+                    int to = Math.min(sessionHandles.length, from + MAX_HANDLES_PER_QUERY);
+                    String QUERY = "SELECT session_handle FROM " + Config.getConfig(start).getSessionInfoTable()
+                            + " WHERE session_handle IN (" + getPlaceholders(to - from) + ")";
+                    try (PreparedStatement pst = sqlCon.prepareStatement(QUERY)) {
+                        for (int i = from; i < to; i++) {
+                            pst.setString(i - from + 1, sessionHandles[i]);
+                        }
+                        ResultSet result = pst.executeQuery();
+                        while (result.next()) {
+                            existingHandles.add(result.getString("session_handle"));
+                        }
+                    }
+                }
+                // the handles are returned in the order in which they were given
+                List<String> deletedHandles = new ArrayList<>();
+                for (String sessionHandle : sessionHandles) {
+                    if (existingHandles.remove(sessionHandle)) {
+                        deletedHandles.add(sessionHandle);
+                    }
+                }
+                deleteSessions_Transaction(start, sqlCon, deletedHandles);
+                sqlCon.commit();
+                return deletedHandles.toArray(new String[0]);
+            } catch (SQLException e) {
+                // not wrapped in a StorageTransactionLogicException, so that startTransaction can retry it if the
+                // transaction was rolled back
+                throw new StorageQueryException(e);
+            }
+        });
+    }
+
+    /**
+     * Same as deleteSessionsAndGetHandles, but for all the sessions of the user
+     */
+    public static String[] deleteSessionsOfUserAndGetHandles(Start start, String userId)
+            throws StorageQueryException, StorageTransactionLogicException {
+        return start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                List<String> sessionHandles = new ArrayList<>();
+                String QUERY = "SELECT session_handle FROM " + Config.getConfig(start).getSessionInfoTable()
+                        + " WHERE user_id = ?";
+                try (PreparedStatement pst = sqlCon.prepareStatement(QUERY)) {
+                    pst.setString(1, userId);
+                    ResultSet result = pst.executeQuery();
+                    while (result.next()) {
+                        sessionHandles.add(result.getString("session_handle"));
+                    }
+                }
+                // we delete the sessions we have read, instead of all the sessions of the user, so that the returned
+                // handles are exactly the ones that have been deleted
+                deleteSessions_Transaction(start, sqlCon, sessionHandles);
+                sqlCon.commit();
+                return sessionHandles.toArray(new String[0]);
+            } catch (SQLException e) {
+                // not wrapped in a StorageTransactionLogicException, so that startTransaction can retry it if the
+                // transaction was rolled back
+                throw new StorageQueryException(e);
+            }
+        });
+    }
+
+    private static void deleteSessions_Transaction(Start start, Connection con, List<String> sessionHandles)
+            throws SQLException {
+        for (int from = 0; from < sessionHandles.size(); from += MAX_HANDLES_PER_QUERY) {
+            int to = Math.min(sessionHandles.size(), from + MAX_HANDLES_PER_QUERY);
+            String QUERY = "DELETE FROM " + Config.getConfig(start).getSessionInfoTable()
+                    + " WHERE session_handle IN (" + getPlaceholders(to - from) + ")";
+            try (PreparedStatement pst = con.prepareStatement(QUERY)) {
+                for (int i = from; i < to; i++) {
+                    pst.setString(i - from + 1, sessionHandles.get(i));
+                }
+                pst.executeUpdate();
+            }
+        }
+    }
+
+    private static String getPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
     public static void deleteSessionsOfUser(Start start, String userId) throws SQLException {
         String QUERY = "DELETE FROM " + Config.getConfig(start).getSessionInfoTable() + " WHERE user_id = ?";
 
@@ -176,10 +311,23 @@ public class SessionQueries {
         }
     }
 
+    public static int deleteExpiredSessions(Start start, int limit) throws SQLException {
+        // SQLite does not support DELETE ... LIMIT unless it is compiled with it, so we select the rows to delete
+        // in a sub query.
+        String QUERY = Config.getQuery(start, "deleteExpiredSessions", config -> "DELETE FROM "
+                + config.getSessionInfoTable() + " WHERE rowid IN (SELECT rowid FROM " + config.getSessionInfoTable()
+                + " WHERE expires_at <= ? LIMIT ?)");
+
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pst = con.prepareStatement(QUERY)) {
+            pst.setLong(1, System.currentTimeMillis());
+            pst.setInt(2, limit);
+            return pst.executeUpdate();
+        }
+    }
+
     public static SessionInfo getSession(Start start, String sessionHandle) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT session_handle, user_id, refresh_token_hash_2, session_data, expires_at, "
-                + "created_at_time, jwt_user_payload FROM " + Config.getConfig(start).getSessionInfoTable()
-                + " WHERE session_handle = ?";
+        String QUERY = Config.getQuery(start, "getSessionInfo", SessionQueries::getQueryToGetSessionInfo);
         try (Connection con = ConnectionPool.getConnection(start);
                 PreparedStatement pst = con.prepareStatement(QUERY)) {
             pst.setString(1, sessionHandle);
@@ -191,6 +339,62 @@ public class SessionQueries {
         return null;
     }
 
+    /**
+     * Returns the sessions that exist out of the given ones, in no particular order
+     */
+    public static SessionInfo[] getSessions(Start start, String[] sessionHandles)
+            throws SQLException, StorageQueryException {
+        if (sessionHandles.length == 0) {
+            return new SessionInfo[0];
+        }
+        List<SessionInfo> sessions = new ArrayList<>();
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            for (int from = 0; from < sessionHandles.length; from += MAX_HANDLES_PER_QUERY) {
+                int to = Math.min(sessionHandles.length, from + MAX_HANDLES_PER_QUERY);
+                String QUERY = "SELECT " + SESSION_INFO_COLUMNS + " FROM "
+                        + Config.getConfig(start).getSessionInfoTable() + " WHERE session_handle IN ("
+                        + getPlaceholders(to - from) + ")";
+                try (PreparedStatement pst = con.prepareStatement(QUERY)) {
+                    for (int i = from; i < to; i++) {
+                        pst.setString(i - from + 1, sessionHandles[i]);
+                    }
+                    ResultSet result = pst.executeQuery();
+                    while (result.next()) {
+                        sessions.add(SessionInfoRowMapper.getInstance().mapOrThrow(result));
+                    }
+                }
+            }
+        }
+        return sessions.toArray(new SessionInfo[0]);
+    }
+
+    /**
+     * Returns up to limit session handles of the user, in ascending order, starting from fromSessionHandle
+     * (inclusive) if it is not null.
+     */
+    public static String[] getSessionHandlesForUser(Start start, String userId, int limit,
+            @Nullable String fromSessionHandle) throws SQLException {
+        String QUERY = "SELECT session_handle FROM " + Config.getConfig(start).getSessionInfoTable()
+                + " WHERE user_id = ?" + (fromSessionHandle == null ? "" : " AND session_handle >= ?")
+                + " ORDER BY session_handle ASC LIMIT ?";
+
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pst = con.prepareStatement(QUERY)) {
+            int index = 1;
+            pst.setString(index++, userId);
+            if (fromSessionHandle != null) {
+                pst.setString(index++, fromSessionHandle);
+            }
+            pst.setInt(index, limit);
+            ResultSet result = pst.executeQuery();
+            List<String> sessionHandles = new ArrayList<>();
+            while (result.next()) {
+                sessionHandles.add(result.getString("session_handle"));
+            }
+            return sessionHandles.toArray(new String[0]);
+        }
+    }
+
     public static int updateSession(Start start, String sessionHandle, JsonObject sessionData, JsonObject jwtPayload)
             throws SQLException {
 
@@ -225,6 +429,63 @@ public class SessionQueries {
         }
     }
 
+    public static void addToSessionRevocationLog(Start start, String[] sessionHandles, long time)
+            throws SQLException {
+        if (sessionHandles.length == 0) {
+            return;
+        }
+        // each row takes two parameters
+        int maxRowsPerQuery = MAX_HANDLES_PER_QUERY / 2;
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            for (int from = 0; from < sessionHandles.length; from += maxRowsPerQuery) {
+                int to = Math.min(sessionHandles.length, from + maxRowsPerQuery);
+                StringBuilder QUERY = new StringBuilder("INSERT INTO "
+                        + Config.getConfig(start).getSessionRevocationLogTable()
+                        + "(session_handle, revoked_at_time) VALUES");
+                for (int i = from; i < to; i++) {
+                    QUERY.append(i == from ? " (?, ?)" : ", (?, ?)");
+                }
+                try (PreparedStatement pst = con.prepareStatement(QUERY.toString())) {
+                    for (int i = from; i < to; i++) {
+                        pst.setString(2 * (i - from) + 1, sessionHandles[i]);
+                        pst.setLong(2 * (i - from) + 2, time);
+                    }
+                    pst.executeUpdate();
+                }
+            }
+        }
+    }
+
+    public static String[] getSessionHandlesInRevocationLogSince(Start start, long time) throws SQLException {
+        String QUERY = Config.getQuery(start, "getSessionHandlesInRevocationLogSince",
+                config -> "SELECT DISTINCT session_handle FROM " + config.getSessionRevocationLogTable()
+                        + " WHERE revoked_at_time >= ?");
+
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pst = con.prepareStatement(QUERY)) {
+            pst.setLong(1, time);
+            ResultSet result = pst.executeQuery();
+            List<String> temp = new ArrayList<>();
+            while (result.next()) {
+                temp.add(result.getString("session_handle"));
+            }
+            return temp.toArray(new String[0]);
+        }
+    }
+
+    public static int deleteFromSessionRevocationLogBefore(Start start, long time, int limit) throws SQLException {
+        String QUERY = Config.getQuery(start, "deleteFromSessionRevocationLogBefore",
+                config -> "DELETE FROM " + config.getSessionRevocationLogTable() + " WHERE rowid IN (SELECT rowid FROM "
+                        + config.getSessionRevocationLogTable() + " WHERE revoked_at_time < ? LIMIT ?)");
+
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pst = con.prepareStatement(QUERY)) {
+            pst.setLong(1, time);
+            pst.setInt(2, limit);
+            return pst.executeUpdate();
+        }
+    }
+
     public static void addAccessTokenSigningKey_Transaction(Start start, Connection con, long createdAtTime,
             String value) throws SQLException {
         String QUERY = "INSERT INTO " + Config.getConfig(start).getAccessTokenSigningKeysTable()
@@ -242,7 +503,8 @@ public class SessionQueries {
         String accessTokenSigningKeysTableName = Config.getConfig(start).getAccessTokenSigningKeysTable();
 
         ((ConnectionWithLocks) con).lock(accessTokenSigningKeysTableName);
-        String QUERY = "SELECT * FROM " + accessTokenSigningKeysTableName;
+        String QUERY = Config.getQuery(start, "getAccessTokenSigningKeys",
+                config -> "SELECT * FROM " + config.getAccessTokenSigningKeysTable());
 
         try (PreparedStatement pst = con.prepareStatement(QUERY)) {
             ResultSet result = pst.executeQuery();
@@ -268,6 +530,18 @@ public class SessionQueries {
         }
     }
 
+    public static int removeAccessTokenSigningKeysBefore(Start start, long time, int limit) throws SQLException {
+        String QUERY = "DELETE FROM " + Config.getConfig(start).getAccessTokenSigningKeysTable()
+                + " WHERE rowid IN (SELECT rowid FROM " + Config.getConfig(start).getAccessTokenSigningKeysTable()
+                + " WHERE created_at_time < ? LIMIT ?)";
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pst = con.prepareStatement(QUERY)) {
+            pst.setLong(1, time);
+            pst.setInt(2, limit);
+            return pst.executeUpdate();
+        }
+    }
+
     private static class SessionInfoRowMapper implements RowMapper<SessionInfo, ResultSet> {
         private static final SessionInfoRowMapper INSTANCE = new SessionInfoRowMapper();
 
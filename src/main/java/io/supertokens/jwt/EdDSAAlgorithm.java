@@ -0,0 +1,80 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.jwt;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.supertokens.utils.CryptoPrimitives;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.EdECPrivateKey;
+import java.security.interfaces.EdECPublicKey;
+import java.util.Base64;
+
+/*
+ * EdDSA with Ed25519 keys, for use with auth0's java-jwt (which only has RSA, ECDSA and HMAC). Signing and
+ * verification are done by the JDK's Ed25519 implementation, with a Signature object cached per thread. Like auth0's
+ * algorithms, it can be used by many threads at once.
+ * */
+class EdDSAAlgorithm extends Algorithm {
+
+    private static final String SIGNATURE_ALGORITHM = "Ed25519";
+
+    private final EdECPublicKey publicKey;
+    private final PrivateKey privateKey;
+
+    EdDSAAlgorithm(EdECPublicKey publicKey, EdECPrivateKey privateKey) {
+        super("EdDSA", SIGNATURE_ALGORITHM);
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+    }
+
+    @Override
+    public void verify(DecodedJWT jwt) throws SignatureVerificationException {
+        try {
+            Signature signature = CryptoPrimitives.getEd25519Signature();
+            signature.initVerify(this.publicKey);
+            signature.update(jwt.getHeader().getBytes(StandardCharsets.UTF_8));
+            signature.update((byte) '.');
+            signature.update(jwt.getPayload().getBytes(StandardCharsets.UTF_8));
+            if (!signature.verify(Base64.getUrlDecoder().decode(jwt.getSignature()))) {
+                throw new SignatureVerificationException(this);
+            }
+        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException | IllegalArgumentException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+    }
+
+    @Override
+    public byte[] sign(byte[] contentBytes) throws SignatureGenerationException {
+        try {
+            Signature signature = CryptoPrimitives.getEd25519Signature();
+            signature.initSign(this.privateKey);
+            signature.update(contentBytes);
+            return signature.sign();
+        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+}
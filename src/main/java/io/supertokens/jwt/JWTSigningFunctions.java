@@ -18,7 +18,6 @@ package io.supertokens.jwt;
 
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
@@ -26,14 +25,20 @@ import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.jwt.JWTAsymmetricSigningKeyInfo;
 import io.supertokens.pluginInterface.jwt.JWTSigningKeyInfo;
+import io.supertokens.utils.Utils;
 
 import java.math.BigInteger;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPrivateKey;
+import java.security.interfaces.EdECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECPoint;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
@@ -58,29 +63,55 @@ public class JWTSigningFunctions {
      * @throws UnsupportedJWTSigningAlgorithmException If the algorithm provided does not match any of the supported
      *                                                 algorithms
      */
-    @SuppressWarnings("unchecked")
     public static String createJWTToken(Main main, String algorithm, JsonObject payload, String jwksDomain,
             long jwtValidity) throws StorageQueryException, StorageTransactionLogicException, NoSuchAlgorithmException,
             InvalidKeySpecException, JWTCreationException, UnsupportedJWTSigningAlgorithmException {
         // TODO: In the future we will have a way for the user to send a custom key id to use
-        JWTSigningKey.SupportedAlgorithms supportedAlgorithm;
+        JWTSigningKey.SupportedAlgorithms supportedAlgorithm = getSupportedAlgorithm(algorithm);
+        JWTSigningKey.KeyForSigning keyForSigning = JWTSigningKey.getInstance(main)
+                .getKeyForSigning(supportedAlgorithm);
+        return createJWTToken(supportedAlgorithm, keyForSigning, payload, jwksDomain, jwtValidity);
+    }
 
+    /**
+     * @param algorithm The name of the algorithm, in upper case
+     * @throws UnsupportedJWTSigningAlgorithmException If the algorithm provided does not match any of the supported
+     *                                                 algorithms
+     */
+    public static JWTSigningKey.SupportedAlgorithms getSupportedAlgorithm(String algorithm)
+            throws UnsupportedJWTSigningAlgorithmException {
         try {
-            supportedAlgorithm = JWTSigningKey.SupportedAlgorithms.valueOf(algorithm);
+            return JWTSigningKey.SupportedAlgorithms.valueOf(algorithm);
         } catch (IllegalArgumentException e) {
             // If it enters this block then the string value provided does not match the algorithms we support
             throw new UnsupportedJWTSigningAlgorithmException();
         }
+    }
 
-        JWTSigningKeyInfo keyToUse = JWTSigningKey.getInstance(main)
-                .getOrCreateAndGetKeyForAlgorithm(supportedAlgorithm);
-        // Get an instance of auth0's Algorithm which is needed when signing using auth0's package
-        Algorithm signingAlgorithm = getAuth0Algorithm(supportedAlgorithm, keyToUse);
+    /**
+     * Creates and returns a JWT string, using a key that has already been fetched with
+     * {@link JWTSigningKey#getKeyForSigning}. This does not use the db, and can be called from many threads at once.
+     *
+     * @param supportedAlgorithm The algorithm of keyForSigning
+     * @param keyForSigning      The key to sign the token with
+     * @param payload            JSON object containing user defined claims to be added to the JWT payload
+     * @param jwksDomain         Used as the issuer in the JWT payload
+     * @param jwtValidity        Used to set iat anf exp claims in the JWT payload
+     * @return String token
+     * @throws JWTCreationException If there is an error when creating JWTs
+     */
+    @SuppressWarnings("unchecked")
+    public static String createJWTToken(JWTSigningKey.SupportedAlgorithms supportedAlgorithm,
+            JWTSigningKey.KeyForSigning keyForSigning, JsonObject payload, String jwksDomain, long jwtValidity)
+            throws JWTCreationException {
+        // The key comes with an instance of auth0's Algorithm which is needed when signing using auth0's package
+        JWTSigningKeyInfo keyToUse = keyForSigning.keyInfo;
+        Algorithm signingAlgorithm = keyForSigning.algorithm;
 
         // Create the claims for the JWT header
         Map<String, Object> headerClaims = new HashMap<>();
-        headerClaims.put("alg", supportedAlgorithm.name().toUpperCase()); // All examples in the RFC have the algorithm
-                                                                          // in upper case
+        // All examples in the RFC have the algorithm in upper case (except EdDSA, which is written this way)
+        headerClaims.put("alg", supportedAlgorithm.getJWTAlgorithmName());
         headerClaims.put("typ", "JWT");
         headerClaims.put("kid", keyToUse.keyId);
 
@@ -89,7 +120,7 @@ public class JWTSigningFunctions {
         long jwtExpiry = Double.valueOf(Math.ceil((currentTimeInMillis / 1000.0))).longValue() + (jwtValidity);
 
         // Add relevant claims to the payload, note we only add/override ones that we absolutely need to.
-        Map<String, Object> jwtPayload = new Gson().fromJson(payload, HashMap.class);
+        Map<String, Object> jwtPayload = Utils.getGson().fromJson(payload, HashMap.class);
         jwtPayload.putIfAbsent("iss", jwksDomain);
         jwtPayload.put("exp", jwtExpiry);
         jwtPayload.put("iat", currentTimeInMillis / 1000); // JWT uses seconds from epoch not millis
@@ -107,6 +138,16 @@ public class JWTSigningFunctions {
      * @return A byte array representation of the big integer, without the
      *         sign bit.
      */
+    private static byte[] toBytesUnsigned(final BigInteger bigInt, int length) {
+        byte[] bytes = toBytesUnsigned(bigInt);
+        if (bytes.length >= length) {
+            return bytes;
+        }
+        byte[] padded = new byte[length];
+        System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+        return padded;
+    }
+
     private static byte[] toBytesUnsigned(final BigInteger bigInt) {
 
         // Copied from Apache Commons Codec 1.8
@@ -164,47 +205,71 @@ public class JWTSigningFunctions {
             if (currentKeyInfo instanceof JWTAsymmetricSigningKeyInfo) {
                 JWTSigningKey.SupportedAlgorithms algorithm = JWTSigningKey.SupportedAlgorithms
                         .valueOf(currentKeyInfo.algorithm);
-                // TODO: In the future with more asymmetric algorithms [ES256 for example] we will need a provider
-                // system for the public key + JWK - Nemi
                 PublicKey publicKey = getPublicKeyFromString(((JWTAsymmetricSigningKeyInfo) currentKeyInfo).publicKey,
                         algorithm);
+                Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+                JsonObject jwk = new JsonObject();
 
                 if (publicKey instanceof RSAPublicKey) {
-                    JsonObject jwk = new JsonObject();
-
                     // Most verifiers seem to expect kty and alg to be in upper case so forcing that here
-                    jwk.addProperty("kty", algorithm.getAlgorithmType().toUpperCase());
+                    jwk.addProperty("kty", "RSA");
+                    jwk.addProperty("kid", currentKeyInfo.keyId);
+                    jwk.addProperty("n",
+                            encoder.encodeToString(toBytesUnsigned(((RSAPublicKey) publicKey).getModulus())));
+                    jwk.addProperty("e",
+                            encoder.encodeToString(toBytesUnsigned(((RSAPublicKey) publicKey).getPublicExponent())));
+                } else if (publicKey instanceof ECPublicKey) {
+                    ECPoint point = ((ECPublicKey) publicKey).getW();
+                    jwk.addProperty("kty", "EC");
+                    jwk.addProperty("kid", currentKeyInfo.keyId);
+                    jwk.addProperty("crv", "P-256");
+                    // The coordinates must be the full size of the curve (32 bytes for P-256), even if they start
+                    // with zeroes
+                    jwk.addProperty("x", encoder.encodeToString(toBytesUnsigned(point.getAffineX(), 32)));
+                    jwk.addProperty("y", encoder.encodeToString(toBytesUnsigned(point.getAffineY(), 32)));
+                } else if (publicKey instanceof EdECPublicKey) {
+                    // The X.509 encoding of an Ed25519 public key ends with the 32 byte public key that JWKs use
+                    byte[] encoded = publicKey.getEncoded();
+                    jwk.addProperty("kty", "OKP");
                     jwk.addProperty("kid", currentKeyInfo.keyId);
-                    jwk.addProperty("n", Base64.getUrlEncoder().withoutPadding()
-                            .encodeToString(toBytesUnsigned(((RSAPublicKey) publicKey).getModulus())));
-                    jwk.addProperty("e", Base64.getUrlEncoder().withoutPadding()
-                            .encodeToString(toBytesUnsigned(((RSAPublicKey) publicKey).getPublicExponent())));
-                    jwk.addProperty("alg", currentKeyInfo.algorithm.toUpperCase());
-                    jwk.addProperty("use", "sig"); // We generate JWKs that are meant to be used for signature
-                                                   // verification
-
-                    jwks.add(jwk);
+                    jwk.addProperty("crv", "Ed25519");
+                    jwk.addProperty("x", encoder.encodeToString(
+                            Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
                 } else {
                     // we don't do anything here because there could be other keys in the array
                     // that could still be valid.
+                    continue;
                 }
+
+                jwk.addProperty("alg", algorithm.getJWTAlgorithmName());
+                jwk.addProperty("use", "sig"); // We generate JWKs that are meant to be used for signature
+                                               // verification
+
+                jwks.add(jwk);
             }
         }
 
         return jwks;
     }
 
-    private static Algorithm getAuth0Algorithm(JWTSigningKey.SupportedAlgorithms algorithm, JWTSigningKeyInfo keyToUse)
+    static Algorithm getAuth0Algorithm(JWTSigningKey.SupportedAlgorithms algorithm, JWTSigningKeyInfo keyToUse)
             throws NoSuchAlgorithmException, InvalidKeySpecException, UnsupportedJWTSigningAlgorithmException {
         // TODO: Abstract this away from the main package to avoid a direct dependency on auth0s package
-        if (algorithm.equalsString("rs256")) {
-            PublicKey publicKey = getPublicKeyFromString(((JWTAsymmetricSigningKeyInfo) keyToUse).publicKey, algorithm);
-            PrivateKey privateKey = getPrivateKeyFromString(((JWTAsymmetricSigningKeyInfo) keyToUse).privateKey,
-                    algorithm);
+        PublicKey publicKey = getPublicKeyFromString(((JWTAsymmetricSigningKeyInfo) keyToUse).publicKey, algorithm);
+        PrivateKey privateKey = getPrivateKeyFromString(((JWTAsymmetricSigningKeyInfo) keyToUse).privateKey,
+                algorithm);
 
-            if (publicKey instanceof RSAPublicKey && privateKey instanceof RSAPrivateKey) {
-                return Algorithm.RSA256((RSAPublicKey) publicKey, (RSAPrivateKey) privateKey);
-            }
+        if (algorithm == JWTSigningKey.SupportedAlgorithms.RS256 && publicKey instanceof RSAPublicKey
+                && privateKey instanceof RSAPrivateKey) {
+            return Algorithm.RSA256((RSAPublicKey) publicKey, (RSAPrivateKey) privateKey);
+        }
+        if (algorithm == JWTSigningKey.SupportedAlgorithms.ES256 && publicKey instanceof ECPublicKey
+                && privateKey instanceof ECPrivateKey) {
+            return Algorithm.ECDSA256((ECPublicKey) publicKey, (ECPrivateKey) privateKey);
+        }
+        if (algorithm == JWTSigningKey.SupportedAlgorithms.EDDSA && publicKey instanceof EdECPublicKey
+                && privateKey instanceof EdECPrivateKey) {
+            return new EdDSAAlgorithm((EdECPublicKey) publicKey, (EdECPrivateKey) privateKey);
         }
 
         throw new UnsupportedJWTSigningAlgorithmException();
@@ -16,6 +16,8 @@
 
 package io.supertokens.jwt;
 
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
 import io.supertokens.exceptions.QuitProgramException;
@@ -33,43 +35,80 @@ import io.supertokens.pluginInterface.jwt.sqlstorage.JWTRecipeSQLStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.Utils;
 
+import javax.annotation.Nullable;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class JWTSigningKey extends ResourceDistributor.SingletonResource {
     public static final String RESOURCE_KEY = "io.supertokens.jwt.JWTSigningKey";
+    // the JWKS is read from the db again after this long (ms), so that keys added through other cores are picked up
+    public static final long JWKS_REFRESH_INTERVAL = 60000;
     private final Main main;
 
+    @Nullable
+    private volatile JWKS jwks = null;
+    private final Object jwksLock = new Object();
+    // The key to sign with for each algorithm, along with a ready to use auth0 Algorithm for it. The key for an
+    // algorithm does not change once it has been created, so an entry is only replaced if storage returns a
+    // different key for its algorithm (i.e., one has been added).
+    private final Map<SupportedAlgorithms, KeyForSigning> keysForSigning = new ConcurrentHashMap<>();
+
+    // incremented each time the JWKS is invalidated. A JWKS read from the db is only kept if no invalidation
+    // happened while it was being read, since it may be missing the key that caused the invalidation.
+    private final AtomicLong numberOfJWKSInvalidations = new AtomicLong(0);
+
     public static void init(Main main) {
-        // init JWT signing keys, we create one key for each supported algorithm type
-        for (int i = 0; i < JWTSigningKey.SupportedAlgorithms.values().length; i++) {
-            JWTSigningKey.SupportedAlgorithms currentAlgorithm = JWTSigningKey.SupportedAlgorithms.values()[i];
-            try {
-                JWTSigningKey.getInstance(main).getOrCreateAndGetKeyForAlgorithm(currentAlgorithm);
-            } catch (StorageQueryException | StorageTransactionLogicException e) {
-                // Do nothing, when a call to /recipe/jwt POST is made the core will attempt to create a new key
-            } catch (UnsupportedJWTSigningAlgorithmException e) {
-                /*
-                 * In this case UnsupportedJWTSigningAlgorithmException should never be thrown because we use
-                 * the enum to iterate all the supported algorithm values. If this does get thrown this should be
-                 * considered a failure.
-                 */
-                throw new QuitProgramException("Trying to create signing key for unsupported JWT signing algorithm");
-            }
+        // init the JWT signing key for RS256. The keys for the other algorithms are only created once a JWT is signed
+        // with them, so that cores that never use them do not generate and store them on every boot.
+        try {
+            JWTSigningKey.getInstance(main).getOrCreateAndGetKeyForAlgorithm(SupportedAlgorithms.RS256);
+        } catch (StorageQueryException | StorageTransactionLogicException e) {
+            // Do nothing, when a call to /recipe/jwt POST is made the core will attempt to create a new key
+        } catch (UnsupportedJWTSigningAlgorithmException e) {
+            // RS256 is always supported, so if this does get thrown this should be considered a failure.
+            throw new QuitProgramException("Trying to create signing key for unsupported JWT signing algorithm");
         }
     }
 
     public enum SupportedAlgorithms {
-        RS256;
+        RS256, ES256, EDDSA;
 
+        // The type of key used by the algorithm, as known to Java's KeyFactory and KeyPairGenerator
         public String getAlgorithmType() {
             if (this == SupportedAlgorithms.RS256) {
                 return "rsa";
             }
+            if (this == SupportedAlgorithms.ES256) {
+                return "ec";
+            }
+            if (this == SupportedAlgorithms.EDDSA) {
+                return "ed25519";
+            }
 
             return "";
         }
 
+        // The name of the algorithm in the alg header of JWTs and the alg field of JWKs
+        public String getJWTAlgorithmName() {
+            if (this == SupportedAlgorithms.EDDSA) {
+                return "EdDSA";
+            }
+
+            return this.name();
+        }
+
         public boolean equalsString(String algorithmString) {
             return this.name().equalsIgnoreCase(algorithmString);
         }
@@ -119,6 +158,63 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
         throw new QuitProgramException("Unsupported storage type detected");
     }
 
+    /**
+     * Returns the JWKS of the asymmetric signing keys. It is kept in memory, and only read from the db again after
+     * JWKS_REFRESH_INTERVAL, or once a key that it does not have is used by this core.
+     */
+    public JWKS getJWKS() throws StorageQueryException, StorageTransactionLogicException, NoSuchAlgorithmException,
+            InvalidKeySpecException {
+        JWKS current = this.jwks;
+        if (current != null && System.currentTimeMillis() < current.refreshAt) {
+            return current;
+        }
+        synchronized (this.jwksLock) {
+            // Some other thread may have refreshed the JWKS while we were waiting for the lock
+            current = this.jwks;
+            long now = System.currentTimeMillis();
+            if (current != null && now < current.refreshAt) {
+                return current;
+            }
+            long invalidationsBeforeRead = this.numberOfJWKSInvalidations.get();
+            JWKS refreshed = new JWKS(JWTSigningFunctions.getJWKS(main), now + JWKS_REFRESH_INTERVAL);
+            if (this.numberOfJWKSInvalidations.get() == invalidationsBeforeRead) {
+                this.jwks = refreshed;
+            }
+            return refreshed;
+        }
+    }
+
+    private void invalidateJWKSIfItDoesNotHave(JWTSigningKeyInfo keyInfo) {
+        if (!(keyInfo instanceof JWTAsymmetricSigningKeyInfo)) {
+            return;
+        }
+        JWKS current = this.jwks;
+        if (current == null || !current.keyIds.contains(keyInfo.keyId)) {
+            this.numberOfJWKSInvalidations.incrementAndGet();
+            this.jwks = null;
+        }
+    }
+
+    /**
+     * Returns the key to sign JWTs with for the given algorithm, from memory if it has already been loaded. If there
+     * are no keys in storage that match the algorithm a new one is generated.
+     */
+    public KeyForSigning getKeyForSigning(SupportedAlgorithms algorithm)
+            throws UnsupportedJWTSigningAlgorithmException, StorageQueryException, StorageTransactionLogicException,
+            NoSuchAlgorithmException, InvalidKeySpecException {
+        KeyForSigning cached = this.keysForSigning.get(algorithm);
+        if (cached != null) {
+            return cached;
+        }
+        JWTSigningKeyInfo keyInfo = this.getOrCreateAndGetKeyForAlgorithm(algorithm);
+        KeyForSigning keyForSigning = new KeyForSigning(keyInfo,
+                JWTSigningFunctions.getAuth0Algorithm(algorithm, keyInfo));
+        // getOrCreateAndGetKeyForAlgorithm may have replaced the entry in the meantime with a newer key, which we
+        // should not overwrite.
+        KeyForSigning existing = this.keysForSigning.putIfAbsent(algorithm, keyForSigning);
+        return existing == null ? keyForSigning : existing;
+    }
+
     /**
      * Used to retrieve a key for JWT validation, for a given signing algorithm. If there are no keys in storage that
      * match the given algorithm a new one is generated.
@@ -132,6 +228,18 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
      */
     public JWTSigningKeyInfo getOrCreateAndGetKeyForAlgorithm(SupportedAlgorithms algorithm)
             throws UnsupportedJWTSigningAlgorithmException, StorageQueryException, StorageTransactionLogicException {
+        JWTSigningKeyInfo keyInfo = getOrCreateAndGetKeyForAlgorithmFromStorage(algorithm);
+        // the key may have just been created, in which case the JWKS needs to be read again
+        invalidateJWKSIfItDoesNotHave(keyInfo);
+        KeyForSigning cached = this.keysForSigning.get(algorithm);
+        if (cached != null && !cached.keyInfo.keyId.equals(keyInfo.keyId)) {
+            this.keysForSigning.remove(algorithm, cached);
+        }
+        return keyInfo;
+    }
+
+    private JWTSigningKeyInfo getOrCreateAndGetKeyForAlgorithmFromStorage(SupportedAlgorithms algorithm)
+            throws UnsupportedJWTSigningAlgorithmException, StorageQueryException, StorageTransactionLogicException {
         JWTRecipeStorage storage = StorageLayer.getJWTRecipeStorage(main);
 
         if (storage.getType() == STORAGE_TYPE.SQL) {
@@ -224,7 +332,7 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
         throw new QuitProgramException("Unsupported storage type detected");
     }
 
-    private JWTSigningKeyInfo generateKeyForAlgorithm(SupportedAlgorithms algorithm)
+    static JWTSigningKeyInfo generateKeyForAlgorithm(SupportedAlgorithms algorithm)
             throws NoSuchAlgorithmException, UnsupportedJWTSigningAlgorithmException {
         if (algorithm.getAlgorithmType().equalsIgnoreCase("rsa")) {
             long currentTimeInMillis = System.currentTimeMillis();
@@ -233,6 +341,53 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
                     newKey.publicKey, newKey.privateKey);
         }
 
+        if (algorithm == SupportedAlgorithms.ES256 || algorithm == SupportedAlgorithms.EDDSA) {
+            long currentTimeInMillis = System.currentTimeMillis();
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm.getAlgorithmType());
+            if (algorithm == SupportedAlgorithms.ES256) {
+                try {
+                    generator.initialize(new ECGenParameterSpec("secp256r1"));
+                } catch (InvalidAlgorithmParameterException e) {
+                    throw new NoSuchAlgorithmException(e);
+                }
+            }
+            // The keys are stored in the same (X.509 / PKCS #8) encodings as RSA keys
+            KeyPair keyPair = generator.generateKeyPair();
+            Base64.Encoder encoder = Base64.getEncoder();
+            return new JWTAsymmetricSigningKeyInfo(Utils.getUUID(), currentTimeInMillis, algorithm.name(),
+                    encoder.encodeToString(keyPair.getPublic().getEncoded()),
+                    encoder.encodeToString(keyPair.getPrivate().getEncoded()));
+        }
+
         throw new IllegalArgumentException();
     }
+
+    public static class KeyForSigning {
+        public final JWTSigningKeyInfo keyInfo;
+        // auth0's Algorithm objects can be used by many threads at once
+        public final Algorithm algorithm;
+
+        KeyForSigning(JWTSigningKeyInfo keyInfo, Algorithm algorithm) {
+            this.keyInfo = keyInfo;
+            this.algorithm = algorithm;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the JWKS, as returned by JWTSigningFunctions.getJWKS
+     */
+    public static class JWKS {
+        public final List<JsonObject> keys;
+        // the db is read again once this time has passed
+        public final long refreshAt;
+        private final Set<String> keyIds = new HashSet<>();
+
+        JWKS(List<JsonObject> keys, long refreshAt) {
+            this.keys = Collections.unmodifiableList(keys);
+            this.refreshAt = refreshAt;
+            for (JsonObject key : keys) {
+                this.keyIds.add(key.get("kid").getAsString());
+            }
+        }
+    }
 }
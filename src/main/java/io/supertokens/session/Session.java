@@ -34,6 +34,7 @@ import io.supertokens.session.info.SessionInfo;
 import io.supertokens.session.info.SessionInformationHolder;
 import io.supertokens.session.info.TokenInfo;
 import io.supertokens.session.refreshToken.RefreshToken;
+import io.supertokens.session.revocation.SessionRevocationFilter;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.Utils;
 import org.jetbrains.annotations.TestOnly;
@@ -49,7 +50,12 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class Session {
@@ -152,16 +158,18 @@ public class Session {
             throw new TryRefreshTokenException("anti-csrf check failed");
         }
 
-        io.supertokens.pluginInterface.session.SessionInfo sessionInfoForBlacklisting = null;
-        if (Config.getConfig(main).getAccessTokenBlacklisting()) {
-            sessionInfoForBlacklisting = StorageLayer.getSessionStorage(main).getSession(accessToken.sessionHandle);
-            if (sessionInfoForBlacklisting == null) {
+        JsonObject JWTPayloadForBlacklisting = null;
+        if (Config.getConfig(main).getAccessTokenBlacklisting()
+                && SessionRevocationFilter.getInstance(main).mightBeRevoked(accessToken.sessionHandle)) {
+            JWTPayloadForBlacklisting = SessionCache.getInstance(main)
+                    .getJWTPayloadOfSession(accessToken.sessionHandle);
+            if (JWTPayloadForBlacklisting == null) {
                 throw new UnauthorisedException("Either the session has ended or has been blacklisted");
             }
         }
 
-        boolean JWTPayloadNeedsUpdating = sessionInfoForBlacklisting != null
-                && !accessToken.userData.equals(sessionInfoForBlacklisting.userDataInJWT);
+        boolean JWTPayloadNeedsUpdating = JWTPayloadForBlacklisting != null
+                && !accessToken.userData.equals(JWTPayloadForBlacklisting);
         if (accessToken.parentRefreshTokenHash1 == null && !JWTPayloadNeedsUpdating) {
             // this means that the refresh token associated with this access token is
             // already the parent - and JWT payload doesn't need to be updated.
@@ -174,22 +182,27 @@ public class Session {
 
         if (StorageLayer.getSessionStorage(main).getType() == STORAGE_TYPE.SQL) {
             SessionSQLStorage storage = (SessionSQLStorage) StorageLayer.getSessionStorage(main);
+            // the new access token is created after the transaction has given its connection back, since creating it
+            // may need a connection of its own to read or update the signing keys.
+            io.supertokens.pluginInterface.session.SessionInfo sessionInfo;
             try {
-                return storage.startTransaction(con -> {
+                sessionInfo = storage.startTransaction(con -> {
                     try {
 
-                        io.supertokens.pluginInterface.session.SessionInfo sessionInfo = storage
+                        io.supertokens.pluginInterface.session.SessionInfo sessionInfoInDb = storage
                                 .getSessionInfo_Transaction(con, accessToken.sessionHandle);
 
-                        if (sessionInfo == null) {
+                        if (sessionInfoInDb == null) {
                             storage.commitTransaction(con);
                             throw new UnauthorisedException("Session missing in db");
                         }
 
-                        boolean promote = accessToken.parentRefreshTokenHash1 != null && sessionInfo.refreshTokenHash2
-                                .equals(Utils.hashSHA256(accessToken.parentRefreshTokenHash1));
+                        boolean promote = accessToken.parentRefreshTokenHash1 != null
+                                && sessionInfoInDb.refreshTokenHash2
+                                        .equals(Utils.hashSHA256(accessToken.parentRefreshTokenHash1));
                         if (promote
-                                || sessionInfo.refreshTokenHash2.equals(Utils.hashSHA256(accessToken.refreshTokenHash1))
+                                || sessionInfoInDb.refreshTokenHash2
+                                        .equals(Utils.hashSHA256(accessToken.refreshTokenHash1))
                                 || JWTPayloadNeedsUpdating) {
                             if (promote) {
                                 storage.updateSessionInfo_Transaction(con, accessToken.sessionHandle,
@@ -197,35 +210,17 @@ public class Session {
                                         System.currentTimeMillis() + Config.getConfig(main).getRefreshTokenValidity());
                             }
                             storage.commitTransaction(con);
-
-                            TokenInfo newAccessToken;
-                            if (AccessToken.getAccessTokenVersion(accessToken) == AccessToken.VERSION.V1) {
-                                newAccessToken = AccessToken.createNewAccessTokenV1(main, accessToken.sessionHandle,
-                                        accessToken.userId, accessToken.refreshTokenHash1, null,
-                                        sessionInfo.userDataInJWT, accessToken.antiCsrfToken);
-                            } else {
-                                assert accessToken.lmrt != null;
-                                newAccessToken = AccessToken.createNewAccessToken(main, accessToken.sessionHandle,
-                                        accessToken.userId, accessToken.refreshTokenHash1, null,
-                                        sessionInfo.userDataInJWT, accessToken.antiCsrfToken, accessToken.lmrt, null);
+                            if (promote) {
+                                // the parent refresh token can no longer be used, so its results must not be reused
+                                SessionRefreshCoalescer.getInstance(main)
+                                        .forgetDoneRefreshes(new String[] { accessToken.sessionHandle });
                             }
-
-                            return new SessionInformationHolder(
-                                    new SessionInfo(accessToken.sessionHandle, accessToken.userId,
-                                            sessionInfo.userDataInJWT),
-                                    new TokenInfo(newAccessToken.token, newAccessToken.expiry,
-                                            newAccessToken.createdTime),
-                                    null, null, null);
+                            return sessionInfoInDb;
                         }
 
                         storage.commitTransaction(con);
-                        return new SessionInformationHolder(
-                                new SessionInfo(accessToken.sessionHandle, accessToken.userId, accessToken.userData),
-                                // here we purposely use accessToken.userData instead of sessionInfo.userDataInJWT
-                                // because we are not returning a new access token
-                                null, null, null, null);
-                    } catch (UnauthorisedException | NoSuchAlgorithmException | UnsupportedEncodingException
-                            | InvalidKeyException | InvalidKeySpecException | SignatureException e) {
+                        return null;
+                    } catch (UnauthorisedException | NoSuchAlgorithmException e) {
                         throw new StorageTransactionLogicException(e);
                     }
                 });
@@ -235,6 +230,36 @@ public class Session {
                 }
                 throw e;
             }
+
+            if (sessionInfo == null) {
+                return new SessionInformationHolder(
+                        new SessionInfo(accessToken.sessionHandle, accessToken.userId, accessToken.userData),
+                        // here we purposely use accessToken.userData instead of sessionInfo.userDataInJWT
+                        // because we are not returning a new access token
+                        null, null, null, null);
+            }
+
+            try {
+                TokenInfo newAccessToken;
+                if (AccessToken.getAccessTokenVersion(accessToken) == AccessToken.VERSION.V1) {
+                    newAccessToken = AccessToken.createNewAccessTokenV1(main, accessToken.sessionHandle,
+                            accessToken.userId, accessToken.refreshTokenHash1, null, sessionInfo.userDataInJWT,
+                            accessToken.antiCsrfToken);
+                } else {
+                    assert accessToken.lmrt != null;
+                    newAccessToken = AccessToken.createNewAccessToken(main, accessToken.sessionHandle,
+                            accessToken.userId, accessToken.refreshTokenHash1, null, sessionInfo.userDataInJWT,
+                            accessToken.antiCsrfToken, accessToken.lmrt, null);
+                }
+
+                return new SessionInformationHolder(
+                        new SessionInfo(accessToken.sessionHandle, accessToken.userId, sessionInfo.userDataInJWT),
+                        new TokenInfo(newAccessToken.token, newAccessToken.expiry, newAccessToken.createdTime), null,
+                        null, null);
+            } catch (NoSuchAlgorithmException | UnsupportedEncodingException | InvalidKeyException
+                    | InvalidKeySpecException | SignatureException e) {
+                throw new StorageTransactionLogicException(e);
+            }
         } else if (StorageLayer.getSessionStorage(main).getType() == STORAGE_TYPE.NOSQL_1) {
             SessionNoSQLStorage_1 storage = (SessionNoSQLStorage_1) StorageLayer.getSessionStorage(main);
             while (true) {
@@ -259,6 +284,9 @@ public class Session {
                             if (!success) {
                                 continue;
                             }
+                            // the parent refresh token can no longer be used, so its results must not be reused
+                            SessionRefreshCoalescer.getInstance(main)
+                                    .forgetDoneRefreshes(new String[] { accessToken.sessionHandle });
                         }
 
                         TokenInfo newAccessToken;
@@ -307,7 +335,14 @@ public class Session {
             }
         }
 
-        return refreshSessionHelper(main, refreshToken, refreshTokenInfo, enableAntiCsrf);
+        String refreshTokenHash1;
+        try {
+            refreshTokenHash1 = Utils.hashSHA256(refreshToken);
+        } catch (NoSuchAlgorithmException e) {
+            throw new StorageTransactionLogicException(e);
+        }
+        return SessionRefreshCoalescer.getInstance(main).refresh(refreshTokenInfo.sessionHandle, refreshTokenHash1,
+                enableAntiCsrf, () -> refreshSessionHelper(main, refreshToken, refreshTokenInfo, enableAntiCsrf));
     }
 
     private static SessionInformationHolder refreshSessionHelper(Main main, String refreshToken,
@@ -322,61 +357,46 @@ public class Session {
         //////////////////////////////////////////////////////////////////////////////////////////////
         if (StorageLayer.getSessionStorage(main).getType() == STORAGE_TYPE.SQL) {
             SessionSQLStorage storage = (SessionSQLStorage) StorageLayer.getSessionStorage(main);
+            String sessionHandle = refreshTokenInfo.sessionHandle;
+            // the new tokens are created after the transaction has given its connection back, since creating them may
+            // need a connection of their own to read or update the signing keys.
+            io.supertokens.pluginInterface.session.SessionInfo sessionInfo;
             try {
-                return storage.startTransaction(con -> {
+                sessionInfo = storage.startTransaction(con -> {
                     try {
-                        String sessionHandle = refreshTokenInfo.sessionHandle;
-                        io.supertokens.pluginInterface.session.SessionInfo sessionInfo = storage
+                        io.supertokens.pluginInterface.session.SessionInfo sessionInfoInDb = storage
                                 .getSessionInfo_Transaction(con, sessionHandle);
 
-                        if (sessionInfo == null || sessionInfo.expiry < System.currentTimeMillis()) {
+                        if (sessionInfoInDb == null || sessionInfoInDb.expiry < System.currentTimeMillis()) {
                             storage.commitTransaction(con);
                             throw new UnauthorisedException("Session missing in db or has expired");
                         }
 
-                        if (sessionInfo.refreshTokenHash2.equals(Utils.hashSHA256(Utils.hashSHA256(refreshToken)))) {
+                        String refreshTokenHash2 = Utils.hashSHA256(Utils.hashSHA256(refreshToken));
+                        if (sessionInfoInDb.refreshTokenHash2.equals(refreshTokenHash2)) {
                             // at this point, the input refresh token is the parent one.
                             storage.commitTransaction(con);
-                            String antiCsrfToken = enableAntiCsrf ? UUID.randomUUID().toString() : null;
-                            final TokenInfo newRefreshToken = RefreshToken.createNewRefreshToken(main, sessionHandle,
-                                    sessionInfo.userId, Utils.hashSHA256(refreshToken), antiCsrfToken);
-
-                            TokenInfo newAccessToken = AccessToken.createNewAccessToken(main, sessionHandle,
-                                    sessionInfo.userId, Utils.hashSHA256(newRefreshToken.token),
-                                    Utils.hashSHA256(refreshToken), sessionInfo.userDataInJWT, antiCsrfToken,
-                                    System.currentTimeMillis(), null); // TODO: get lmrt from database
-
-                            TokenInfo idRefreshToken = new TokenInfo(UUID.randomUUID().toString(),
-                                    newRefreshToken.expiry, newRefreshToken.createdTime);
-
-                            return new SessionInformationHolder(
-                                    new SessionInfo(sessionHandle, sessionInfo.userId, sessionInfo.userDataInJWT),
-                                    newAccessToken, newRefreshToken, idRefreshToken, antiCsrfToken);
+                            return sessionInfoInDb;
                         }
 
-                        if ((refreshTokenInfo.type == RefreshToken.TYPE.FREE
-                                && refreshTokenInfo.parentRefreshTokenHash2 != null
-                                && refreshTokenInfo.parentRefreshTokenHash2.equals(sessionInfo.refreshTokenHash2))
-                                || (refreshTokenInfo.parentRefreshTokenHash1 != null
-                                        && Utils.hashSHA256(refreshTokenInfo.parentRefreshTokenHash1)
-                                                .equals(sessionInfo.refreshTokenHash2))) {
-                            storage.updateSessionInfo_Transaction(con, sessionHandle,
-                                    Utils.hashSHA256(Utils.hashSHA256(refreshToken)),
+                        if (isChildOfCurrentRefreshToken(refreshTokenInfo, sessionInfoInDb.refreshTokenHash2)) {
+                            // we make the input refresh token the parent one, and then create the new tokens in the
+                            // same way as above, without reading the session again.
+                            storage.updateSessionInfo_Transaction(con, sessionHandle, refreshTokenHash2,
                                     System.currentTimeMillis() + Config.getConfig(main).getRefreshTokenValidity());
 
                             storage.commitTransaction(con);
-
-                            return refreshSessionHelper(main, refreshToken, refreshTokenInfo, enableAntiCsrf);
+                            // the parent refresh token can no longer be used, so its results must not be reused
+                            SessionRefreshCoalescer.getInstance(main)
+                                    .forgetDoneRefreshes(new String[] { sessionHandle });
+                            return sessionInfoInDb;
                         }
 
                         storage.commitTransaction(con);
 
-                        throw new TokenTheftDetectedException(sessionHandle, sessionInfo.userId);
+                        throw new TokenTheftDetectedException(sessionHandle, sessionInfoInDb.userId);
 
-                    } catch (UnauthorisedException | NoSuchAlgorithmException | InvalidKeyException
-                            | UnsupportedEncodingException | TokenTheftDetectedException | InvalidKeySpecException
-                            | SignatureException | NoSuchPaddingException | InvalidAlgorithmParameterException
-                            | IllegalBlockSizeException | BadPaddingException e) {
+                    } catch (UnauthorisedException | NoSuchAlgorithmException | TokenTheftDetectedException e) {
                         throw new StorageTransactionLogicException(e);
                     }
                 });
@@ -389,6 +409,15 @@ public class Session {
                 throw e;
             }
 
+            try {
+                return createNewTokensForRefresh(main, sessionHandle, sessionInfo.userId, sessionInfo.userDataInJWT,
+                        refreshToken, enableAntiCsrf);
+            } catch (NoSuchAlgorithmException | InvalidKeyException | UnsupportedEncodingException
+                    | InvalidKeySpecException | SignatureException | NoSuchPaddingException
+                    | InvalidAlgorithmParameterException | IllegalBlockSizeException | BadPaddingException e) {
+                throw new StorageTransactionLogicException(e);
+            }
+
             ////////////////////////////////////////// NOSQL_1/////////////////////////////////////////////
             //////////////////////////////////////////////////////////////////////////////////////////////
             //////////////////////////////////////////////////////////////////////////////////////////////
@@ -407,39 +436,26 @@ public class Session {
                         throw new UnauthorisedException("Session missing in db or has expired");
                     }
 
-                    if (sessionInfo.refreshTokenHash2.equals(Utils.hashSHA256(Utils.hashSHA256(refreshToken)))) {
+                    String refreshTokenHash2 = Utils.hashSHA256(Utils.hashSHA256(refreshToken));
+                    if (sessionInfo.refreshTokenHash2.equals(refreshTokenHash2)) {
                         // at this point, the input refresh token is the parent one.
-                        String antiCsrfToken = enableAntiCsrf ? UUID.randomUUID().toString() : null;
-
-                        final TokenInfo newRefreshToken = RefreshToken.createNewRefreshToken(main, sessionHandle,
-                                sessionInfo.userId, Utils.hashSHA256(refreshToken), antiCsrfToken);
-                        TokenInfo newAccessToken = AccessToken.createNewAccessToken(main, sessionHandle,
-                                sessionInfo.userId, Utils.hashSHA256(newRefreshToken.token),
-                                Utils.hashSHA256(refreshToken), sessionInfo.userDataInJWT, antiCsrfToken,
-                                System.currentTimeMillis(), null); // TODO: get lmrt from database
-
-                        TokenInfo idRefreshToken = new TokenInfo(UUID.randomUUID().toString(), newRefreshToken.expiry,
-                                newRefreshToken.createdTime);
-
-                        return new SessionInformationHolder(
-                                new SessionInfo(sessionHandle, sessionInfo.userId, sessionInfo.userDataInJWT),
-                                newAccessToken, newRefreshToken, idRefreshToken, antiCsrfToken);
+                        return createNewTokensForRefresh(main, sessionHandle, sessionInfo.userId,
+                                sessionInfo.userDataInJWT, refreshToken, enableAntiCsrf);
                     }
 
-                    if ((refreshTokenInfo.type == RefreshToken.TYPE.FREE
-                            && refreshTokenInfo.parentRefreshTokenHash2 != null
-                            && refreshTokenInfo.parentRefreshTokenHash2.equals(sessionInfo.refreshTokenHash2))
-                            || (refreshTokenInfo.parentRefreshTokenHash1 != null
-                                    && Utils.hashSHA256(refreshTokenInfo.parentRefreshTokenHash1)
-                                            .equals(sessionInfo.refreshTokenHash2))) {
-                        boolean success = storage.updateSessionInfo_Transaction(sessionHandle,
-                                Utils.hashSHA256(Utils.hashSHA256(refreshToken)),
+                    if (isChildOfCurrentRefreshToken(refreshTokenInfo, sessionInfo.refreshTokenHash2)) {
+                        // the update only succeeds if the session has not changed since we read it, so we can create
+                        // the new tokens from what we have read.
+                        boolean success = storage.updateSessionInfo_Transaction(sessionHandle, refreshTokenHash2,
                                 System.currentTimeMillis() + Config.getConfig(main).getRefreshTokenValidity(),
                                 sessionInfo.lastUpdatedSign);
                         if (!success) {
                             continue;
                         }
-                        return refreshSessionHelper(main, refreshToken, refreshTokenInfo, enableAntiCsrf);
+                        // the parent refresh token can no longer be used, so its results must not be reused
+                        SessionRefreshCoalescer.getInstance(main).forgetDoneRefreshes(new String[] { sessionHandle });
+                        return createNewTokensForRefresh(main, sessionHandle, sessionInfo.userId,
+                                sessionInfo.userDataInJWT, refreshToken, enableAntiCsrf);
                     }
 
                     throw new TokenTheftDetectedException(sessionHandle, sessionInfo.userId);
@@ -456,40 +472,86 @@ public class Session {
         }
     }
 
-    public static String[] revokeSessionUsingSessionHandles(Main main, String[] sessionHandles)
-            throws StorageQueryException {
-        int numberOfSessionsRevoked = StorageLayer.getSessionStorage(main).deleteSession(sessionHandles);
+    // true if the input refresh token is a child of the session's current (parent) refresh token, which means that
+    // it is being used for the first time.
+    private static boolean isChildOfCurrentRefreshToken(RefreshToken.RefreshTokenInfo refreshTokenInfo,
+            String currentRefreshTokenHash2) throws NoSuchAlgorithmException {
+        return (refreshTokenInfo.type == RefreshToken.TYPE.FREE && refreshTokenInfo.parentRefreshTokenHash2 != null
+                && refreshTokenInfo.parentRefreshTokenHash2.equals(currentRefreshTokenHash2))
+                || (refreshTokenInfo.parentRefreshTokenHash1 != null
+                        && Utils.hashSHA256(refreshTokenInfo.parentRefreshTokenHash1).equals(currentRefreshTokenHash2));
+    }
 
-        // most of the time we will enter the below if statement
-        if (numberOfSessionsRevoked == sessionHandles.length) {
-            return sessionHandles;
-        }
+    // creates the tokens returned by a refresh, once the input refresh token is the parent one in the db
+    private static SessionInformationHolder createNewTokensForRefresh(Main main, String sessionHandle, String userId,
+            JsonObject userDataInJWT, String refreshToken, boolean enableAntiCsrf)
+            throws NoSuchAlgorithmException, InvalidKeyException, UnsupportedEncodingException,
+            InvalidKeySpecException, SignatureException, NoSuchPaddingException, InvalidAlgorithmParameterException,
+            IllegalBlockSizeException, BadPaddingException, StorageQueryException, StorageTransactionLogicException {
+        String antiCsrfToken = enableAntiCsrf ? UUID.randomUUID().toString() : null;
+        final TokenInfo newRefreshToken = RefreshToken.createNewRefreshToken(main, sessionHandle, userId,
+                Utils.hashSHA256(refreshToken), antiCsrfToken);
 
-        String[] result = new String[numberOfSessionsRevoked];
-        int indexIntoResult = 0;
-        for (String sessionHandle : sessionHandles) {
-            if (indexIntoResult >= numberOfSessionsRevoked) {
-                break;
-            }
+        TokenInfo newAccessToken = AccessToken.createNewAccessToken(main, sessionHandle, userId,
+                Utils.hashSHA256(newRefreshToken.token), Utils.hashSHA256(refreshToken), userDataInJWT,
+                antiCsrfToken, System.currentTimeMillis(), null); // TODO: get lmrt from database
 
-            if (StorageLayer.getSessionStorage(main).getSession(sessionHandle) == null) {
-                result[indexIntoResult] = sessionHandle;
-                indexIntoResult++;
-            }
-        }
+        TokenInfo idRefreshToken = new TokenInfo(UUID.randomUUID().toString(), newRefreshToken.expiry,
+                newRefreshToken.createdTime);
 
-        return result;
+        return new SessionInformationHolder(new SessionInfo(sessionHandle, userId, userDataInJWT), newAccessToken,
+                newRefreshToken, idRefreshToken, antiCsrfToken);
+    }
+
+    public static String[] revokeSessionUsingSessionHandles(Main main, String[] sessionHandles)
+            throws StorageQueryException {
+        SessionRevocationFilter.logRevokedSessions(main, sessionHandles);
+        String[] revokedSessionHandles = StorageLayer.getSessionStorage(main)
+                .deleteSessionsAndGetHandles(sessionHandles);
+        forgetRevokedSessions(main, revokedSessionHandles);
+        return revokedSessionHandles;
     }
 
     public static String[] revokeAllSessionsForUser(Main main, String userId) throws StorageQueryException {
-        String[] sessionHandles = getAllSessionHandlesForUser(main, userId);
-        return revokeSessionUsingSessionHandles(main, sessionHandles);
+        if (SessionRevocationFilter.isEnabled(main)) {
+            // the sessions have to be logged before they are deleted, so we need their handles first
+            return revokeSessionUsingSessionHandles(main, getAllSessionHandlesForUser(main, userId));
+        }
+        String[] revokedSessionHandles = StorageLayer.getSessionStorage(main)
+                .deleteSessionsOfUserAndGetHandles(userId);
+        forgetRevokedSessions(main, revokedSessionHandles);
+        return revokedSessionHandles;
+    }
+
+    private static void forgetRevokedSessions(Main main, String[] sessionHandles) {
+        SessionCache.getInstance(main).invalidate(sessionHandles);
+        SessionRefreshCoalescer.getInstance(main).forgetDoneRefreshes(sessionHandles);
     }
 
     public static String[] getAllSessionHandlesForUser(Main main, String userId) throws StorageQueryException {
         return StorageLayer.getSessionStorage(main).getAllSessionHandlesForUser(userId);
     }
 
+    public static SessionHandlePaginationContainer getSessionHandlesForUser(Main main, String userId, int limit,
+            @Nullable String paginationToken)
+            throws StorageQueryException, SessionHandlePaginationToken.InvalidTokenException {
+        String fromSessionHandle = null;
+        if (paginationToken != null) {
+            SessionHandlePaginationToken tokenInfo = SessionHandlePaginationToken.extractTokenInfo(paginationToken);
+            if (!tokenInfo.userId.equals(userId)) {
+                throw new SessionHandlePaginationToken.InvalidTokenException();
+            }
+            fromSessionHandle = tokenInfo.sessionHandle;
+        }
+        String[] sessionHandles = StorageLayer.getSessionStorage(main).getSessionHandlesForUser(userId, limit + 1,
+                fromSessionHandle);
+        if (sessionHandles.length <= limit) {
+            return new SessionHandlePaginationContainer(sessionHandles, null);
+        }
+        return new SessionHandlePaginationContainer(Arrays.copyOf(sessionHandles, limit),
+                new SessionHandlePaginationToken(sessionHandles[limit], userId).generateToken());
+    }
+
     @Deprecated
     public static JsonObject getSessionData(Main main, String sessionHandle)
             throws StorageQueryException, UnauthorisedException {
@@ -530,10 +592,43 @@ public class Session {
         return session;
     }
 
+    /**
+     * Same as getSession, but for many sessions at once. Sessions that do not exist or have expired are left out,
+     * and the rest are in the order in which their handles were given.
+     * Used by:
+     * - /recipe/session/batch GET
+     */
+    public static io.supertokens.pluginInterface.session.SessionInfo[] getSessions(Main main, String[] sessionHandles)
+            throws StorageQueryException {
+        io.supertokens.pluginInterface.session.SessionInfo[] sessions = StorageLayer.getSessionStorage(main)
+                .getSessions(sessionHandles);
+        Map<String, io.supertokens.pluginInterface.session.SessionInfo> sessionsByHandle = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (io.supertokens.pluginInterface.session.SessionInfo session : sessions) {
+            if (session.expiry > now) {
+                sessionsByHandle.put(session.sessionHandle, session);
+            }
+        }
+        List<io.supertokens.pluginInterface.session.SessionInfo> result = new ArrayList<>();
+        for (String sessionHandle : sessionHandles) {
+            io.supertokens.pluginInterface.session.SessionInfo session = sessionsByHandle.remove(sessionHandle);
+            if (session != null) {
+                result.add(session);
+            }
+        }
+        return result.toArray(new io.supertokens.pluginInterface.session.SessionInfo[0]);
+    }
+
     public static void updateSession(Main main, String sessionHandle, @Nullable JsonObject sessionData,
             @Nullable JsonObject jwtData, @Nullable Long lmrt) throws StorageQueryException, UnauthorisedException {
+        if (jwtData != null) {
+            // so that other cores look up the new payload when verifying access tokens of this session
+            SessionRevocationFilter.logRevokedSessions(main, new String[] { sessionHandle });
+        }
         int numberOfRowsAffected = StorageLayer.getSessionStorage(main).updateSession(sessionHandle, sessionData,
                 jwtData); // TODO: update lmrt as well
+        SessionCache.getInstance(main).invalidate(new String[] { sessionHandle });
+        SessionRefreshCoalescer.getInstance(main).forgetDoneRefreshes(new String[] { sessionHandle });
         if (numberOfRowsAffected != 1) {
             throw new UnauthorisedException("Session does not exist.");
         }
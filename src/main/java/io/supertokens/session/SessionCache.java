@@ -0,0 +1,126 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.session;
+
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.session.SessionInfo;
+import io.supertokens.storageLayer.StorageLayer;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches, for access_token_blacklisting_cache_ttl milliseconds, whether a session exists and what its JWT payload is,
+ * so that verifying an access token with blacklisting enabled does not need a db query each time. At most
+ * access_token_blacklisting_cache_size sessions are cached.
+ *
+ * Sessions that are revoked or updated through this core are removed from the cache before the revoke / update
+ * returns. Changes made through other cores are only seen once the cached entry expires.
+ */
+public class SessionCache extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.session.SessionCache";
+
+    private final Main main;
+    private final ConcurrentHashMap<String, CachedSession> sessions = new ConcurrentHashMap<>();
+
+    // incremented on each invalidation. A db read is only cached if no invalidation happened while it was going on,
+    // since otherwise we could cache a session that has just been revoked.
+    private final AtomicLong numberOfInvalidations = new AtomicLong(0);
+
+    private SessionCache(Main main) {
+        this.main = main;
+    }
+
+    public static SessionCache getInstance(Main main) {
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor().getResource(RESOURCE_KEY);
+        if (instance == null) {
+            instance = main.getResourceDistributor().setResource(RESOURCE_KEY, new SessionCache(main));
+        }
+        return (SessionCache) instance;
+    }
+
+    /**
+     * @return the JWT payload of the session, or null if the session does not exist
+     */
+    @Nullable
+    public JsonObject getJWTPayloadOfSession(String sessionHandle) throws StorageQueryException {
+        CoreConfig config = Config.getConfig(main);
+        long ttl = config.getAccessTokenBlacklistingCacheTTL();
+        if (ttl == 0) {
+            return getJWTPayloadFromDb(sessionHandle);
+        }
+
+        long now = System.currentTimeMillis();
+        CachedSession cached = this.sessions.get(sessionHandle);
+        if (cached != null && cached.cachedUntil > now) {
+            return cached.userDataInJWT;
+        }
+
+        long invalidationsBeforeRead = this.numberOfInvalidations.get();
+        JsonObject userDataInJWT = getJWTPayloadFromDb(sessionHandle);
+        if (this.numberOfInvalidations.get() == invalidationsBeforeRead) {
+            int maxNumberOfEntries = config.getAccessTokenBlacklistingCacheSize();
+            if (this.sessions.size() >= maxNumberOfEntries) {
+                this.removeExpiredEntries(now);
+            }
+            if (this.sessions.size() < maxNumberOfEntries) {
+                CachedSession entry = new CachedSession(userDataInJWT, now + ttl);
+                this.sessions.put(sessionHandle, entry);
+                // an invalidation may have happened between the check above and the put
+                if (this.numberOfInvalidations.get() != invalidationsBeforeRead) {
+                    this.sessions.remove(sessionHandle, entry);
+                }
+            }
+        }
+        return userDataInJWT;
+    }
+
+    public void invalidate(String[] sessionHandles) {
+        this.numberOfInvalidations.incrementAndGet();
+        for (String sessionHandle : sessionHandles) {
+            this.sessions.remove(sessionHandle);
+        }
+    }
+
+    private void removeExpiredEntries(long now) {
+        this.sessions.values().removeIf(entry -> entry.cachedUntil <= now);
+    }
+
+    @Nullable
+    private JsonObject getJWTPayloadFromDb(String sessionHandle) throws StorageQueryException {
+        SessionInfo sessionInfo = StorageLayer.getSessionStorage(main).getSession(sessionHandle);
+        return sessionInfo == null ? null : sessionInfo.userDataInJWT;
+    }
+
+    private static class CachedSession {
+        @Nullable
+        final JsonObject userDataInJWT;
+        final long cachedUntil;
+
+        CachedSession(@Nullable JsonObject userDataInJWT, long cachedUntil) {
+            this.userDataInJWT = userDataInJWT;
+            this.cachedUntil = cachedUntil;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.session;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class SessionHandlePaginationToken {
+    // the first session handle of the next page
+    public final String sessionHandle;
+    // the user whose sessions are being listed, so that a token cannot be used for another user
+    public final String userId;
+
+    public SessionHandlePaginationToken(String sessionHandle, String userId) {
+        this.sessionHandle = sessionHandle;
+        this.userId = userId;
+    }
+
+    public static SessionHandlePaginationToken extractTokenInfo(String token) throws InvalidTokenException {
+        try {
+            String decodedPaginationToken = new String(Base64.getDecoder().decode(token), StandardCharsets.UTF_8);
+            // session handles never contain a ';', but user IDs can
+            int separator = decodedPaginationToken.indexOf(';');
+            if (separator <= 0) {
+                throw new Exception();
+            }
+            return new SessionHandlePaginationToken(decodedPaginationToken.substring(0, separator),
+                    decodedPaginationToken.substring(separator + 1));
+        } catch (Exception e) {
+            throw new InvalidTokenException();
+        }
+    }
+
+    public String generateToken() {
+        return Base64.getEncoder()
+                .encodeToString((this.sessionHandle + ";" + this.userId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static class InvalidTokenException extends Exception {
+
+        private static final long serialVersionUID = -3390744651830479245L;
+    }
+}
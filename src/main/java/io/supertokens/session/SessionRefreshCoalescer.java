@@ -0,0 +1,192 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.session;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.exceptions.TokenTheftDetectedException;
+import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.session.info.SessionInformationHolder;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes concurrent refresh calls with the same refresh token (like the ones sent by several tabs of a browser at
+ * once) share the result of a single refresh, instead of each of them locking the session and creating new tokens.
+ *
+ * If session_refresh_grace_period is more than 0, the result of a successful refresh is also returned to calls with
+ * the same refresh token for that long after it is done, without going to the db. This is forgotten once the new
+ * refresh token is used, or when the session is revoked or updated through this core.
+ */
+public class SessionRefreshCoalescer extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.session.SessionRefreshCoalescer";
+
+    private final Main main;
+    private final ConcurrentHashMap<RefreshKey, Refresh> refreshes = new ConcurrentHashMap<>();
+
+    // done refreshes whose grace period is over are only removed when they are looked up again, or at most once
+    // every grace period by removeExpiredRefreshes.
+    private volatile long nextCleanupTime = 0;
+
+    private SessionRefreshCoalescer(Main main) {
+        this.main = main;
+    }
+
+    public static SessionRefreshCoalescer getInstance(Main main) {
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor().getResource(RESOURCE_KEY);
+        if (instance == null) {
+            instance = main.getResourceDistributor().setResource(RESOURCE_KEY, new SessionRefreshCoalescer(main));
+        }
+        return (SessionRefreshCoalescer) instance;
+    }
+
+    interface RefreshFunction {
+        SessionInformationHolder refresh() throws StorageTransactionLogicException, UnauthorisedException,
+                StorageQueryException, TokenTheftDetectedException;
+    }
+
+    /**
+     * Runs refreshFunction, unless a refresh with the same key is in progress, or has been done within the grace
+     * period. In that case, its result (or exception) is returned instead.
+     */
+    SessionInformationHolder refresh(String sessionHandle, String refreshTokenHash1, boolean enableAntiCsrf,
+            RefreshFunction refreshFunction) throws StorageTransactionLogicException, UnauthorisedException,
+            StorageQueryException, TokenTheftDetectedException {
+        RefreshKey key = new RefreshKey(sessionHandle, refreshTokenHash1, enableAntiCsrf);
+        Refresh ours = new Refresh();
+        while (true) {
+            Refresh existing = this.refreshes.putIfAbsent(key, ours);
+            if (existing == null) {
+                break;
+            }
+            if (existing.isExpired(System.currentTimeMillis())) {
+                this.refreshes.remove(key, existing);
+                continue;
+            }
+            return existing.getResult();
+        }
+
+        try {
+            SessionInformationHolder result = refreshFunction.refresh();
+            long gracePeriod = Config.getConfig(main).getSessionRefreshGracePeriod();
+            long now = System.currentTimeMillis();
+            ours.keepUntil = now + gracePeriod;
+            ours.result.complete(result);
+            if (gracePeriod == 0) {
+                this.refreshes.remove(key, ours);
+            } else {
+                this.removeExpiredRefreshes(now, gracePeriod);
+            }
+            return result;
+        } catch (Throwable e) {
+            // the calls waiting for this refresh must get an exception whatever went wrong, else they would wait
+            // forever
+            this.refreshes.remove(key, ours);
+            ours.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets the done refreshes of these sessions, so that later refresh calls go to the db. Refreshes that are in
+     * progress are left alone.
+     */
+    void forgetDoneRefreshes(String[] sessionHandles) {
+        if (this.refreshes.isEmpty()) {
+            return;
+        }
+        // a single pass over the refreshes, however many sessions are revoked at once
+        Set<String> handles = new HashSet<>(Arrays.asList(sessionHandles));
+        this.refreshes.entrySet().removeIf(
+                entry -> handles.contains(entry.getKey().sessionHandle) && entry.getValue().result.isDone());
+    }
+
+    private void removeExpiredRefreshes(long now, long gracePeriod) {
+        if (now < this.nextCleanupTime) {
+            return;
+        }
+        this.nextCleanupTime = now + gracePeriod;
+        this.refreshes.values().removeIf(refresh -> refresh.isExpired(now));
+    }
+
+    private static class Refresh {
+        final CompletableFuture<SessionInformationHolder> result = new CompletableFuture<>();
+        // only read once result is done
+        volatile long keepUntil = Long.MAX_VALUE;
+
+        boolean isExpired(long now) {
+            return this.result.isDone() && this.keepUntil < now;
+        }
+
+        SessionInformationHolder getResult() throws StorageTransactionLogicException, UnauthorisedException,
+                StorageQueryException, TokenTheftDetectedException {
+            try {
+                return this.result.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof StorageTransactionLogicException) {
+                    throw (StorageTransactionLogicException) cause;
+                } else if (cause instanceof UnauthorisedException) {
+                    throw (UnauthorisedException) cause;
+                } else if (cause instanceof StorageQueryException) {
+                    throw (StorageQueryException) cause;
+                } else if (cause instanceof TokenTheftDetectedException) {
+                    throw (TokenTheftDetectedException) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static class RefreshKey {
+        final String sessionHandle;
+        final String refreshTokenHash1;
+        final boolean enableAntiCsrf;
+
+        RefreshKey(String sessionHandle, String refreshTokenHash1, boolean enableAntiCsrf) {
+            this.sessionHandle = sessionHandle;
+            this.refreshTokenHash1 = refreshTokenHash1;
+            this.enableAntiCsrf = enableAntiCsrf;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof RefreshKey)) {
+                return false;
+            }
+            RefreshKey otherKey = (RefreshKey) other;
+            return this.sessionHandle.equals(otherKey.sessionHandle)
+                    && this.refreshTokenHash1.equals(otherKey.refreshTokenHash1)
+                    && this.enableAntiCsrf == otherKey.enableAntiCsrf;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.sessionHandle, this.refreshTokenHash1, this.enableAntiCsrf);
+        }
+    }
+}
@@ -16,7 +16,6 @@
 
 package io.supertokens.session.accessToken;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
@@ -26,6 +25,7 @@ import io.supertokens.exceptions.TryRefreshTokenException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.session.accessToken.AccessTokenSigningKey.KeyInfo;
+import io.supertokens.session.accessToken.VerifiedAccessTokenCache.VerifiedAccessToken;
 import io.supertokens.session.info.TokenInfo;
 import io.supertokens.session.jwt.JWT;
 import io.supertokens.session.jwt.JWT.JWTException;
@@ -38,25 +38,65 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Collections;
 import java.util.List;
 
 public class AccessToken {
 
     // TODO: device fingerprint - store hash of this in JWT.
 
-    private static AccessTokenInfo getInfoFromAccessToken(@Nonnull Main main, @Nonnull String token, boolean retry,
-            boolean doAntiCsrfCheck)
+    private static VerifiedAccessToken verifyAccessToken(@Nonnull Main main, @Nonnull String token, boolean retry)
             throws StorageQueryException, StorageTransactionLogicException, TryRefreshTokenException {
-        List<AccessTokenSigningKey.KeyInfo> keyInfoList = AccessTokenSigningKey.getInstance(main).getAllKeys();
+        AccessTokenSigningKey signingKeys = AccessTokenSigningKey.getInstance(main);
+        List<AccessTokenSigningKey.KeyInfo> keyInfoList = signingKeys.getAllKeys();
+
+        JWT.ParsedJWT parsedJWT;
+        try {
+            parsedJWT = JWT.parseJWT(token);
+        } catch (JWTException e) {
+            // the token is malformed, fetching the keys again won't help
+            throw new TryRefreshTokenException(e);
+        }
+
+        // V3 tokens tell us which key they were signed with, so we only need to check one signature. Older tokens
+        // have to be checked against all valid keys.
+        VERSION version = parsedJWT.version;
+        String keyId = null;
+        List<AccessTokenSigningKey.KeyInfo> candidateKeys;
+        if (version != null) {
+            candidateKeys = keyInfoList;
+        } else {
+            version = VERSION.V3;
+            // The header of a V3 token only depends on its key, so we compare it against the header of each key
+            // instead of decoding it.
+            KeyInfo signingKey = null;
+            for (KeyInfo keyInfo : keyInfoList) {
+                if (parsedJWT.hasHeader(keyInfo.jwtHeaderV3)) {
+                    signingKey = keyInfo;
+                    break;
+                }
+            }
+            if (signingKey != null) {
+                keyId = signingKey.id;
+                candidateKeys = Collections.singletonList(signingKey);
+            } else {
+                try {
+                    // this throws if the header is not a valid V3 header. Otherwise, the token was signed with a key
+                    // that we do not have in memory.
+                    JWT.getKeyIdWithoutVerifying(token);
+                } catch (JWTException e) {
+                    throw new TryRefreshTokenException(e);
+                }
+                candidateKeys = Collections.emptyList();
+            }
+        }
 
         Exception error = null;
         JWT.JWTInfo jwtInfo = null;
-        for (KeyInfo keyInfo : keyInfoList) {
+        for (KeyInfo keyInfo : candidateKeys) {
             // getAllKeys already filters out expired keys, so we do not need to check it here.
-
-            Utils.PubPriKey signingKey = new Utils.PubPriKey(keyInfo.value);
             try {
-                jwtInfo = JWT.verifyJWTAndGetPayload(token, signingKey.publicKey);
+                jwtInfo = JWT.verifyJWTAndGetPayload(parsedJWT, version, keyId, keyInfo.publicKey);
                 error = null;
                 break;
             } catch (NoSuchAlgorithmException e) {
@@ -74,7 +114,8 @@ public class AccessToken {
                  * on the client of the core.
                  *
                  * 3) This access token was created with a new signing key, which was changed manually before its
-                 * expiry. In here, we want to remove the older signing key from memory and fetch again.
+                 * expiry. In here, we want to remove the older signing key from memory and fetch again. For V3
+                 * tokens, this is also the case when we do not know the kid in the header.
                  *
                  * So overall, since (2) should not call the core in the first place, it's OK to always refetch
                  * the signing key from the db in case of failure and then retry.
@@ -95,13 +136,22 @@ public class AccessToken {
                 ProcessState.getInstance(main).addState(PROCESS_STATE.RETRYING_ACCESS_TOKEN_JWT_VERIFICATION, error);
 
                 // remove key from memory and retry
-                AccessTokenSigningKey.getInstance(main).removeKeyFromMemoryIfItHasNotChanged(keyInfoList);
-                return AccessToken.getInfoFromAccessToken(main, token, false, doAntiCsrfCheck);
+                signingKeys.removeKeyFromMemoryIfItHasNotChanged(keyInfoList);
+                return AccessToken.verifyAccessToken(main, token, false);
+            }
+            if (error == null) {
+                throw new TryRefreshTokenException("Unknown access token signing key");
             }
             throw new TryRefreshTokenException(error);
         }
-        AccessTokenInfo tokenInfo = new Gson().fromJson(jwtInfo.payload, AccessTokenInfo.class);
-        if (jwtInfo.version == VERSION.V1) {
+        return new VerifiedAccessToken(Utils.getGson().fromJson(jwtInfo.payload, AccessTokenInfo.class),
+                jwtInfo.version);
+    }
+
+    private static void checkAccessTokenInfo(VerifiedAccessToken verified, boolean doAntiCsrfCheck)
+            throws TryRefreshTokenException {
+        AccessTokenInfo tokenInfo = verified.info;
+        if (verified.version == VERSION.V1) {
             if (tokenInfo.sessionHandle == null || tokenInfo.userId == null || tokenInfo.refreshTokenHash1 == null
                     || tokenInfo.userData == null || (doAntiCsrfCheck && tokenInfo.antiCsrfToken == null)) {
                 throw new TryRefreshTokenException(
@@ -118,18 +168,35 @@ public class AccessToken {
         if (tokenInfo.expiryTime < System.currentTimeMillis()) {
             throw new TryRefreshTokenException("Access token expired");
         }
-
-        return tokenInfo;
     }
 
     public static AccessTokenInfo getInfoFromAccessToken(@Nonnull Main main, @Nonnull String token,
             boolean doAntiCsrfCheck)
             throws StorageQueryException, StorageTransactionLogicException, TryRefreshTokenException {
-        return getInfoFromAccessToken(main, token, true, doAntiCsrfCheck);
+        VerifiedAccessTokenCache cache = VerifiedAccessTokenCache.getInstance(main);
+        try {
+            String cacheKey = cache.getKey(token);
+            VerifiedAccessToken verified = cache.get(cacheKey);
+            if (verified != null) {
+                // the structure and expiry are checked again, since whether the anti-csrf token is needed depends on
+                // the request
+                checkAccessTokenInfo(verified, doAntiCsrfCheck);
+                return verified.info;
+            }
+
+            long invalidationsBeforeVerifying = cache.getNumberOfInvalidations();
+            verified = verifyAccessToken(main, token, true);
+            checkAccessTokenInfo(verified, doAntiCsrfCheck);
+            cache.put(cacheKey, verified, invalidationsBeforeVerifying);
+            return verified.info;
+        } catch (NoSuchAlgorithmException e) {
+            // This basically should never happen, but it means that we can't hash any tokens
+            throw new TryRefreshTokenException(e);
+        }
     }
 
     public static AccessTokenInfo getInfoFromAccessTokenWithoutVerifying(@Nonnull String token) {
-        return new Gson().fromJson(JWT.getPayloadWithoutVerifying(token).payload, AccessTokenInfo.class);
+        return Utils.getGson().fromJson(JWT.getPayloadWithoutVerifying(token).payload, AccessTokenInfo.class);
     }
 
     public static TokenInfo createNewAccessToken(@Nonnull Main main, @Nonnull String sessionHandle,
@@ -138,15 +205,21 @@ public class AccessToken {
             throws StorageQueryException, StorageTransactionLogicException, InvalidKeyException,
             NoSuchAlgorithmException, UnsupportedEncodingException, InvalidKeySpecException, SignatureException {
 
-        Utils.PubPriKey signingKey = new Utils.PubPriKey(
-                AccessTokenSigningKey.getInstance(main).getLatestIssuedKey().value);
+        KeyInfo signingKey = AccessTokenSigningKey.getInstance(main).getLatestIssuedKey();
         long now = System.currentTimeMillis();
         if (expiryTime == null) {
             expiryTime = now + Config.getConfig(main).getAccessTokenValidity();
         }
         AccessTokenInfo accessToken = new AccessTokenInfo(sessionHandle, userId, refreshTokenHash1, expiryTime,
                 parentRefreshTokenHash1, userData, antiCsrfToken, now, lmrt);
-        String token = JWT.createJWT(new Gson().toJsonTree(accessToken), signingKey.privateKey, VERSION.V2);
+        // SDKs that verify access tokens themselves only know the V1 and V2 headers, so the V3 header is opt-in.
+        String token;
+        if (Config.getConfig(main).getAccessTokenKeyIdInHeader()) {
+            token = JWT.createJWT(Utils.getGson().toJsonTree(accessToken), signingKey.privateKey, VERSION.V3,
+                    signingKey.id);
+        } else {
+            token = JWT.createJWT(Utils.getGson().toJsonTree(accessToken), signingKey.privateKey, VERSION.V2);
+        }
         return new TokenInfo(token, expiryTime, now);
 
     }
@@ -157,8 +230,7 @@ public class AccessToken {
             throws StorageQueryException, StorageTransactionLogicException, InvalidKeyException,
             NoSuchAlgorithmException, UnsupportedEncodingException, InvalidKeySpecException, SignatureException {
 
-        Utils.PubPriKey signingKey = new Utils.PubPriKey(
-                AccessTokenSigningKey.getInstance(main).getLatestIssuedKey().value);
+        KeyInfo signingKey = AccessTokenSigningKey.getInstance(main).getLatestIssuedKey();
         long now = System.currentTimeMillis();
         AccessTokenInfo accessToken;
 
@@ -166,11 +238,12 @@ public class AccessToken {
         accessToken = new AccessTokenInfo(sessionHandle, userId, refreshTokenHash1, expiryTime, parentRefreshTokenHash1,
                 userData, antiCsrfToken, now, null);
 
-        String token = JWT.createJWT(new Gson().toJsonTree(accessToken), signingKey.privateKey, VERSION.V1);
+        String token = JWT.createJWT(Utils.getGson().toJsonTree(accessToken), signingKey.privateKey, VERSION.V1);
         return new TokenInfo(token, expiryTime, now);
 
     }
 
+    // V3 only changes the JWT header, so this tells apart the payload formats: V1 vs V2 / V3.
     public static VERSION getAccessTokenVersion(AccessTokenInfo accessToken) {
         if (accessToken.lmrt == null) {
             return VERSION.V1;
@@ -212,6 +285,6 @@ public class AccessToken {
     }
 
     public enum VERSION {
-        V1, V2
+        V1, V2, V3
     }
 }
@@ -16,11 +16,14 @@
 
 package io.supertokens.session.accessToken;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.ResourceDistributor;
 import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
+import io.supertokens.cronjobs.BatchedDeletion;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.KeyValueInfo;
@@ -32,14 +35,22 @@ import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicExceptio
 import io.supertokens.pluginInterface.session.SessionStorage;
 import io.supertokens.pluginInterface.session.noSqlStorage.SessionNoSQLStorage_1;
 import io.supertokens.pluginInterface.session.sqlStorage.SessionSQLStorage;
+import io.supertokens.session.jwt.JWT;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.Utils;
 
+import javax.annotation.Nullable;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource {
@@ -49,7 +60,13 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
     private static final int SIGNING_KEY_VALIDITY_OVERLAP = 2;
     private static final String RESOURCE_KEY = "io.supertokens.session.accessToken.AccessTokenSigningKey";
     private final Main main;
-    private List<KeyInfo> validKeys;
+    // Readers only ever look at the current snapshot, so they never have to take a lock. A new snapshot is built
+    // and published by a single thread (holding refreshLock) whenever the current one goes stale.
+    private final AtomicReference<KeyRing> keyRing = new AtomicReference<>(null);
+    private final Object refreshLock = new Object();
+    // the last snapshot that was published, even if keyRing has since been set to null. Only used while holding
+    // refreshLock.
+    private KeyRing lastPublishedKeyRing = null;
 
     private AccessTokenSigningKey(Main main) {
         this.main = main;
@@ -81,21 +98,17 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
         return (AccessTokenSigningKey) main.getResourceDistributor().getResource(RESOURCE_KEY);
     }
 
-    synchronized void removeKeyFromMemoryIfItHasNotChanged(List<KeyInfo> oldKeyInfo) {
-        // we cannot use read write locks for keyInfo because in getKey, we would
-        // have to upgrade from the readLock to a
-        // writeLock - which is not possible:
-        // https://docs.oracle.com/javase/7/docs/api/java/util/concurrent/locks/ReentrantReadWriteLock.html
-
+    void removeKeyFromMemoryIfItHasNotChanged(List<KeyInfo> oldKeyInfo) {
+        KeyRing current = this.keyRing.get();
         // This reference comparison should work, since we recreate the list object each time we refresh and it's
-        // unmodifiable
-        if (this.validKeys == oldKeyInfo) {
+        // unmodifiable. The compareAndSet makes sure that we do not throw away a snapshot that another thread has
+        // published in the meantime.
+        if (current != null && current.validKeys == oldKeyInfo && this.keyRing.compareAndSet(current, null)) {
             // key has not changed since we previously tried to use it.. So we can make it null.
             // otherwise we might end up making this null unnecessarily.
 
             ProcessState.getInstance(this.main)
                     .addState(ProcessState.PROCESS_STATE.SETTING_ACCESS_TOKEN_SIGNING_KEY_TO_NULL, null);
-            this.validKeys = null;
         }
     }
 
@@ -134,44 +147,93 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
         }
     }
 
-    public synchronized void cleanExpiredAccessTokenSigningKeys() throws StorageQueryException {
+    @Nullable
+    public synchronized BatchedDeletion.Metrics cleanExpiredAccessTokenSigningKeys()
+            throws StorageQueryException, InterruptedException {
         SessionStorage storage = StorageLayer.getSessionStorage(main);
         CoreConfig config = Config.getConfig(main);
 
         if (config.getAccessTokenSigningKeyDynamic()) {
             final long signingKeyLifetime = config.getAccessTokenSigningKeyUpdateInterval()
                     + SIGNING_KEY_VALIDITY_OVERLAP * config.getAccessTokenValidity();
+            final long expiredBefore = System.currentTimeMillis() - signingKeyLifetime;
 
-            storage.removeAccessTokenSigningKeysBefore(System.currentTimeMillis() - signingKeyLifetime);
+            return BatchedDeletion.deleteInBatches(main, "access token signing keys",
+                    batchSize -> storage.removeAccessTokenSigningKeysBefore(expiredBefore, batchSize));
         }
+        return null;
     }
 
-    public synchronized List<KeyInfo> getAllKeys() throws StorageQueryException, StorageTransactionLogicException {
-        CoreConfig config = Config.getConfig(main);
+    public List<KeyInfo> getAllKeys() throws StorageQueryException, StorageTransactionLogicException {
+        return this.getKeyRing().validKeys;
+    }
 
-        if (this.validKeys != null) {
-            this.validKeys = this.validKeys.stream().filter(((KeyInfo k) -> k.expiryTime >= System.currentTimeMillis()))
-                    .collect(Collectors.toList());
-        }
+    public KeyInfo getLatestIssuedKey() throws StorageQueryException, StorageTransactionLogicException {
+        return this.getKeyRing().validKeys.get(0);
+    }
 
-        if (this.validKeys == null || this.validKeys.size() == 0
-                || System.currentTimeMillis() > this.validKeys.get(0).createdAtTime
-                        + config.getAccessTokenSigningKeyUpdateInterval()) {
-            this.validKeys = maybeGenerateNewKeyAndUpdateInDb();
-        }
+    public long getKeyExpiryTime() throws StorageQueryException, StorageTransactionLogicException {
+        return this.getKeyRing().latestKeyExpiryTime;
+    }
+
+    /**
+     * Returns the signing key fields of the session API responses, rendered for the current key ring.
+     */
+    public SigningKeysFragment getSigningKeysFragment()
+            throws StorageQueryException, StorageTransactionLogicException {
+        return this.getKeyRing().signingKeysFragment;
+    }
 
-        return this.validKeys;
+    private KeyRing getKeyRing() throws StorageQueryException, StorageTransactionLogicException {
+        KeyRing current = this.keyRing.get();
+        if (current != null && System.currentTimeMillis() < current.refreshAt) {
+            return current;
+        }
+        return this.refreshKeyRing();
     }
 
-    public KeyInfo getLatestIssuedKey() throws StorageQueryException, StorageTransactionLogicException {
-        return this.getAllKeys().get(0);
+    private KeyRing refreshKeyRing() throws StorageQueryException, StorageTransactionLogicException {
+        synchronized (this.refreshLock) {
+            // Some other thread may have refreshed the snapshot while we were waiting for the lock
+            KeyRing current = this.keyRing.get();
+            long now = System.currentTimeMillis();
+            if (current != null && now < current.refreshAt) {
+                return current;
+            }
+
+            long updateInterval = Config.getConfig(main).getAccessTokenSigningKeyUpdateInterval();
+            KeyRing refreshed = null;
+            if (current != null && now <= current.validKeys.get(0).createdAtTime + updateInterval) {
+                // The latest key can still be used for signing, so only expired verification keys need to be
+                // dropped - there is no need to go to the db for that.
+                List<KeyInfo> stillValid = current.validKeys.stream().filter(k -> k.expiryTime >= now)
+                        .collect(Collectors.toList());
+                if (stillValid.size() != 0) {
+                    refreshed = new KeyRing(Collections.unmodifiableList(stillValid), updateInterval);
+                }
+            }
+            if (refreshed == null) {
+                refreshed = new KeyRing(maybeGenerateNewKeyAndUpdateInDb(), updateInterval);
+            }
+            this.keyRing.set(refreshed);
+            // Tokens that were verified with a removed key must be verified again. This is done after publishing
+            // the new snapshot, so that a verification that starts after the invalidation cannot use the old one.
+            if (this.lastPublishedKeyRing != null && hasRemovedKeys(this.lastPublishedKeyRing, refreshed)) {
+                VerifiedAccessTokenCache.getInstance(main).invalidateAll();
+            }
+            this.lastPublishedKeyRing = refreshed;
+            return refreshed;
+        }
     }
 
-    public synchronized long getKeyExpiryTime() throws StorageQueryException, StorageTransactionLogicException {
-        this.getAllKeys();
-        // getKey ensures we have at least 1 valid keys
-        long createdAtTime = this.validKeys.get(0).createdAtTime;
-        return createdAtTime + Config.getConfig(main).getAccessTokenSigningKeyUpdateInterval();
+    private static boolean hasRemovedKeys(KeyRing before, KeyRing after) {
+        for (KeyInfo key : before.validKeys) {
+            KeyInfo stillThere = after.keysById.get(key.id);
+            if (stillThere == null || !stillThere.value.equals(key.value)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private List<KeyInfo> maybeGenerateNewKeyAndUpdateInDb()
@@ -203,24 +265,27 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
 
                 KeyValueInfo[] keysFromStorage = sqlStorage.getAccessTokenSigningKeys_Transaction(con);
 
-                for (KeyValueInfo key : keysFromStorage) {
-                    if (keysCreatedAfterCanVerify <= key.createdAtTime) {
-                        if (keysCreatedAfterCanSign <= key.createdAtTime) {
-                            generateNewKey = false;
+                try {
+                    for (KeyValueInfo key : keysFromStorage) {
+                        if (keysCreatedAfterCanVerify <= key.createdAtTime) {
+                            if (keysCreatedAfterCanSign <= key.createdAtTime) {
+                                generateNewKey = false;
+                            }
+                            validKeysFromSQL.add(new KeyInfo(key.value, key.createdAtTime, signingKeyLifetime));
                         }
-                        validKeysFromSQL.add(new KeyInfo(key.value, key.createdAtTime, signingKeyLifetime));
                     }
+                } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+                    throw new StorageTransactionLogicException(e);
                 }
 
                 if (generateNewKey) {
-                    String signingKey;
+                    KeyInfo newKey;
                     try {
                         Utils.PubPriKey rsaKeys = Utils.generateNewPubPriKey();
-                        signingKey = rsaKeys.toString();
-                    } catch (NoSuchAlgorithmException e) {
+                        newKey = new KeyInfo(rsaKeys.toString(), System.currentTimeMillis(), signingKeyLifetime);
+                    } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
                         throw new StorageTransactionLogicException(e);
                     }
-                    KeyInfo newKey = new KeyInfo(signingKey, System.currentTimeMillis(), signingKeyLifetime);
                     sqlStorage.addAccessTokenSigningKey_Transaction(con,
                             new KeyValueInfo(newKey.value, newKey.createdAtTime));
                     validKeysFromSQL.add(newKey);
@@ -242,27 +307,30 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
 
                 KeyValueInfo[] keysFromStorage = noSQLStorage.getAccessTokenSigningKeys_Transaction();
 
-                for (KeyValueInfo key : keysFromStorage) {
-                    lastCreated = lastCreated == null || lastCreated < key.createdAtTime ? key.createdAtTime
-                            : lastCreated;
+                try {
+                    for (KeyValueInfo key : keysFromStorage) {
+                        lastCreated = lastCreated == null || lastCreated < key.createdAtTime ? key.createdAtTime
+                                : lastCreated;
 
-                    if (keysCreatedAfterCanVerify <= key.createdAtTime) {
-                        if (keysCreatedAfterCanSign <= key.createdAtTime) {
-                            generateNewKey = false;
+                        if (keysCreatedAfterCanVerify <= key.createdAtTime) {
+                            if (keysCreatedAfterCanSign <= key.createdAtTime) {
+                                generateNewKey = false;
+                            }
+                            validKeys.add(new KeyInfo(key.value, key.createdAtTime, signingKeyLifetime));
                         }
-                        validKeys.add(new KeyInfo(key.value, key.createdAtTime, signingKeyLifetime));
                     }
+                } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+                    throw new StorageTransactionLogicException(e);
                 }
 
                 if (generateNewKey) {
-                    String signingKey;
+                    KeyInfo newKey;
                     try {
                         Utils.PubPriKey rsaKeys = Utils.generateNewPubPriKey();
-                        signingKey = rsaKeys.toString();
-                    } catch (NoSuchAlgorithmException e) {
+                        newKey = new KeyInfo(rsaKeys.toString(), System.currentTimeMillis(), signingKeyLifetime);
+                    } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
                         throw new StorageTransactionLogicException(e);
                     }
-                    KeyInfo newKey = new KeyInfo(signingKey, System.currentTimeMillis(), signingKeyLifetime);
                     boolean success = noSQLStorage.addAccessTokenSigningKey_Transaction(
                             new KeyValueInfo(newKey.value, newKey.createdAtTime), lastCreated);
 
@@ -284,15 +352,94 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
         return Collections.unmodifiableList(validKeys);
     }
 
-    public static class KeyInfo {
-        public String value;
-        public long createdAtTime;
-        public long expiryTime;
+    /**
+     * Immutable snapshot of the keys that can currently be used. validKeys is sorted by createdAtTime, newest
+     * first, and is never empty.
+     */
+    private static class KeyRing {
+        final List<KeyInfo> validKeys;
+        final Map<String, KeyInfo> keysById;
+        final long latestKeyExpiryTime;
+        // the snapshot has to be rebuilt once the latest key should no longer be used for signing, or once
+        // any of the keys in it expires.
+        final long refreshAt;
+        final SigningKeysFragment signingKeysFragment;
+
+        KeyRing(List<KeyInfo> validKeys, long updateInterval) {
+            this.validKeys = validKeys;
+            Map<String, KeyInfo> keysById = new HashMap<>();
+            for (KeyInfo key : validKeys) {
+                keysById.put(key.id, key);
+            }
+            this.keysById = Collections.unmodifiableMap(keysById);
+            this.latestKeyExpiryTime = validKeys.get(0).createdAtTime + updateInterval;
+            long refreshAt = this.latestKeyExpiryTime;
+            for (KeyInfo key : validKeys) {
+                refreshAt = Math.min(refreshAt, key.expiryTime);
+            }
+            this.refreshAt = refreshAt;
+            this.signingKeysFragment = new SigningKeysFragment(validKeys, this.latestKeyExpiryTime);
+        }
+    }
 
-        KeyInfo(String value, long createdAtTime, long validityDuration) {
+    /**
+     * The jwtSigningPublicKey, jwtSigningPublicKeyExpiryTime and jwtSigningPublicKeyList fields that the session
+     * APIs add to their responses, serialised as a comma separated list of JSON fields (without the enclosing
+     * braces). They are rendered once per key ring, so that responses can include them as they are.
+     */
+    public static class SigningKeysFragment {
+        private final String fieldsWithKeyList;
+        private final String fieldsWithoutKeyList;
+
+        SigningKeysFragment(List<KeyInfo> validKeys, long latestKeyExpiryTime) {
+            JsonObject fields = new JsonObject();
+            fields.addProperty("jwtSigningPublicKey", new Utils.PubPriKey(validKeys.get(0).value).publicKey);
+            fields.addProperty("jwtSigningPublicKeyExpiryTime", latestKeyExpiryTime);
+            this.fieldsWithoutKeyList = withoutBraces(fields.toString());
+
+            JsonArray keyList = new JsonArray();
+            for (KeyInfo key : validKeys) {
+                JsonObject keyJson = new JsonObject();
+                keyJson.addProperty("publicKey", new Utils.PubPriKey(key.value).publicKey);
+                keyJson.addProperty("expiryTime", key.expiryTime);
+                keyJson.addProperty("createdAt", key.createdAtTime);
+                keyList.add(keyJson);
+            }
+            fields.add("jwtSigningPublicKeyList", keyList);
+            this.fieldsWithKeyList = withoutBraces(fields.toString());
+        }
+
+        public String getSerialisedFields(boolean includeKeyList) {
+            return includeKeyList ? this.fieldsWithKeyList : this.fieldsWithoutKeyList;
+        }
+
+        private static String withoutBraces(String serialisedObject) {
+            return serialisedObject.substring(1, serialisedObject.length() - 1);
+        }
+    }
+
+    public static class KeyInfo {
+        // used as the kid in the header of V3 access tokens
+        public final String id;
+        public final String value;
+        public final long createdAtTime;
+        public final long expiryTime;
+        // parsed once when the key is loaded so that signing and verification do not need to decode the key each time
+        public final PublicKey publicKey;
+        public final PrivateKey privateKey;
+        // the header of V3 access tokens signed with this key
+        public final String jwtHeaderV3;
+
+        KeyInfo(String value, long createdAtTime, long validityDuration)
+                throws NoSuchAlgorithmException, InvalidKeySpecException {
+            this.id = "s-" + createdAtTime;
             this.value = value;
             this.createdAtTime = createdAtTime;
             this.expiryTime = createdAtTime + validityDuration;
+            Utils.PubPriKey pubPriKey = new Utils.PubPriKey(value);
+            this.publicKey = Utils.getPublicKeyFromString(pubPriKey.publicKey);
+            this.privateKey = Utils.getPrivateKeyFromString(pubPriKey.privateKey);
+            this.jwtHeaderV3 = JWT.createHeaderV3(this.id);
         }
     }
 
@@ -0,0 +1,146 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.session.accessToken;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.session.accessToken.AccessToken.AccessTokenInfo;
+import io.supertokens.utils.Utils;
+
+import javax.annotation.Nullable;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers up to access_token_verification_cache_size access tokens whose signature has been verified, keyed by a
+ * hash of the token, so that verifying the same token again only needs a hash and a map lookup. A token is remembered
+ * until its expiryTime, and all tokens are forgotten whenever a signing key is removed from memory.
+ *
+ * Only the signature verification and the decoding of the payload are cached - the anti-csrf and blacklisting checks
+ * are done by the callers on each verification.
+ */
+public class VerifiedAccessTokenCache extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.session.accessToken.VerifiedAccessTokenCache";
+
+    private final Main main;
+    private final ConcurrentHashMap<String, VerifiedAccessToken> tokens = new ConcurrentHashMap<>();
+
+    // incremented on each invalidation. A verification is only cached if no invalidation happened while it was going
+    // on, since otherwise we could cache a token whose signing key has just been removed.
+    private final AtomicLong numberOfInvalidations = new AtomicLong(0);
+
+    private VerifiedAccessTokenCache(Main main) {
+        this.main = main;
+    }
+
+    public static VerifiedAccessTokenCache getInstance(Main main) {
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor().getResource(RESOURCE_KEY);
+        if (instance == null) {
+            instance = main.getResourceDistributor().setResource(RESOURCE_KEY, new VerifiedAccessTokenCache(main));
+        }
+        return (VerifiedAccessTokenCache) instance;
+    }
+
+    /**
+     * Hashing the token is the most expensive part of a cache lookup, so the key should be computed once per
+     * verification and passed to both get and put.
+     *
+     * @return the key of the token in the cache, or null if the cache is disabled
+     */
+    @Nullable
+    String getKey(String token) throws NoSuchAlgorithmException {
+        if (Config.getConfig(main).getAccessTokenVerificationCacheSize() == 0) {
+            return null;
+        }
+        return Utils.hashSHA256(token);
+    }
+
+    /**
+     * @param key the result of getKey
+     * @return the verified token, or null if it is not in the cache (or if the cache is disabled)
+     */
+    @Nullable
+    VerifiedAccessToken get(@Nullable String key) {
+        if (key == null) {
+            return null;
+        }
+        VerifiedAccessToken verified = this.tokens.get(key);
+        if (verified == null || verified.info.expiryTime < System.currentTimeMillis()) {
+            return null;
+        }
+        return verified;
+    }
+
+    long getNumberOfInvalidations() {
+        return this.numberOfInvalidations.get();
+    }
+
+    /**
+     * @param key                          the result of getKey
+     * @param invalidationsBeforeVerifying the value of getNumberOfInvalidations from before the token was verified
+     */
+    void put(@Nullable String key, VerifiedAccessToken verified, long invalidationsBeforeVerifying) {
+        int maxSize = Config.getConfig(main).getAccessTokenVerificationCacheSize();
+        long now = System.currentTimeMillis();
+        if (key == null || maxSize == 0 || verified.info.expiryTime < now
+                || this.numberOfInvalidations.get() != invalidationsBeforeVerifying) {
+            return;
+        }
+        if (this.tokens.size() >= maxSize) {
+            this.evict(maxSize, now);
+        }
+        this.tokens.put(key, verified);
+        // an invalidation may have happened between the check above and the put
+        if (this.numberOfInvalidations.get() != invalidationsBeforeVerifying) {
+            this.tokens.remove(key, verified);
+        }
+    }
+
+    public void invalidateAll() {
+        this.numberOfInvalidations.incrementAndGet();
+        this.tokens.clear();
+    }
+
+    public int size() {
+        return this.tokens.size();
+    }
+
+    private void evict(int maxSize, long now) {
+        this.tokens.values().removeIf(verified -> verified.info.expiryTime < now);
+        // If the cache is still full, we make room for a tenth of it at once, so that we do not have to go through
+        // all the entries on each put. The entries that get removed are effectively random.
+        Iterator<VerifiedAccessToken> iterator = this.tokens.values().iterator();
+        while (this.tokens.size() > maxSize - Math.max(1, maxSize / 10) && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    static class VerifiedAccessToken {
+        final AccessTokenInfo info;
+        final AccessToken.VERSION version;
+
+        VerifiedAccessToken(AccessTokenInfo info, AccessToken.VERSION version) {
+            this.info = info;
+            this.version = version;
+        }
+    }
+}
@@ -22,14 +22,23 @@ import com.google.gson.JsonParser;
 import io.supertokens.session.accessToken.AccessToken;
 import io.supertokens.utils.Utils;
 
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
 
 public class JWT {
     private static String HEADERv1 = null;
     private static String HEADERv2 = null;
+    // tokens longer than this are copied into a new array when verifying them
+    private static final int TOKEN_BUFFER_SIZE = 4096;
+    private static final ThreadLocal<byte[]> TOKEN_BUFFER = ThreadLocal.withInitial(() -> new byte[TOKEN_BUFFER_SIZE]);
 
     private static void initHeader() {
         if (HEADERv1 == null) {
@@ -50,42 +59,234 @@ public class JWT {
 
     public static String createJWT(JsonElement jsonObj, String privateSigningKey, AccessToken.VERSION version)
             throws InvalidKeyException, NoSuchAlgorithmException, InvalidKeySpecException, SignatureException {
+        return createJWT(jsonObj, Utils.getPrivateKeyFromString(privateSigningKey), version);
+    }
+
+    public static String createJWT(JsonElement jsonObj, PrivateKey privateSigningKey, AccessToken.VERSION version)
+            throws InvalidKeyException, NoSuchAlgorithmException, SignatureException {
+        return createJWT(jsonObj, privateSigningKey, version, null);
+    }
+
+    /**
+     * keyId is required for V3 tokens, which carry it in their header so that the verifier knows which key to use.
+     * It is ignored for older versions.
+     */
+    public static String createJWT(JsonElement jsonObj, PrivateKey privateSigningKey, AccessToken.VERSION version,
+            @Nullable String keyId) throws InvalidKeyException, NoSuchAlgorithmException, SignatureException {
         initHeader();
         String payload = Utils.convertToBase64(jsonObj.toString());
-        String header = version == AccessToken.VERSION.V1 ? JWT.HEADERv1 : JWT.HEADERv2;
+        String header;
+        if (version == AccessToken.VERSION.V1) {
+            header = JWT.HEADERv1;
+        } else if (version == AccessToken.VERSION.V2) {
+            header = JWT.HEADERv2;
+        } else {
+            if (keyId == null) {
+                throw new IllegalArgumentException("keyId is required to create a V3 JWT");
+            }
+            header = createHeaderV3(keyId);
+        }
         String signature = Utils.signWithPrivateKey(header + "." + payload, privateSigningKey);
         return header + "." + payload + "." + signature;
     }
 
     public static JWTInfo verifyJWTAndGetPayload(String jwt, String publicSigningKey)
             throws InvalidKeyException, NoSuchAlgorithmException, JWTException {
-        initHeader();
-        String[] splittedInput = jwt.split("\\.");
-        if (splittedInput.length != 3) {
-            throw new JWTException("Invalid JWT");
+        PublicKey publicKey;
+        try {
+            publicKey = Utils.getPublicKeyFromString(publicSigningKey);
+        } catch (InvalidKeySpecException e) {
+            throw new JWTException("JWT verification failed");
         }
-        // checking header
-        if (!splittedInput[0].equals(JWT.HEADERv1) && !splittedInput[0].equals(JWT.HEADERv2)) {
-            throw new JWTException("JWT header mismatch");
+        return verifyJWTAndGetPayload(jwt, publicKey);
+    }
+
+    public static JWTInfo verifyJWTAndGetPayload(String jwt, PublicKey publicSigningKey)
+            throws InvalidKeyException, NoSuchAlgorithmException, JWTException {
+        ParsedJWT parsedJWT = parseJWT(jwt);
+        JWTHeader header = parsedJWT.version != null ? new JWTHeader(parsedJWT.version, null)
+                : parseHeaderV3(jwt, parsedJWT.firstDot);
+        return verifyJWTAndGetPayload(parsedJWT, header.version, header.keyId, publicSigningKey);
+    }
+
+    /**
+     * Verifies a JWT that has already been parsed using parseJWT. The caller must have already checked the header,
+     * which is what tells it the version (and keyId for V3 JWTs).
+     */
+    public static JWTInfo verifyJWTAndGetPayload(ParsedJWT jwt, AccessToken.VERSION version, @Nullable String keyId,
+            PublicKey publicSigningKey) throws InvalidKeyException, NoSuchAlgorithmException, JWTException {
+        // We work on the byte ranges of the token directly instead of splitting it up into (and re-joining) Strings,
+        // since this is called for every session verification. The bytes are copied into a per-thread buffer, so
+        // that we do not allocate a new array for each token.
+        int length = jwt.jwt.length();
+        byte[] jwtBytes = TOKEN_BUFFER.get();
+        if (jwtBytes.length < length) {
+            jwtBytes = new byte[length];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = jwt.jwt.charAt(i);
+            if (c > 127) {
+                // base64 only uses ASCII characters
+                throw new JWTException("JWT verification failed");
+            }
+            jwtBytes[i] = (byte) c;
         }
         // verifying signature
-        String payload = splittedInput[1];
         try {
-            if (!Utils.verifyWithPublicKey(splittedInput[0] + "." + payload, splittedInput[2], publicSigningKey)) {
+            ByteBuffer signature = Base64.getDecoder()
+                    .decode(ByteBuffer.wrap(jwtBytes, jwt.secondDot + 1, length - jwt.secondDot - 1));
+            if (!Utils.verifyWithPublicKey(jwtBytes, jwt.secondDot, signature, publicSigningKey)) {
                 throw new JWTException("JWT verification failed");
             }
-        } catch (InvalidKeySpecException | SignatureException e) {
+        } catch (SignatureException | IllegalArgumentException e) {
             throw new JWTException("JWT verification failed");
         }
-        return new JWTInfo(new JsonParser().parse(Utils.convertFromBase64(splittedInput[1])),
-                splittedInput[0].equals(JWT.HEADERv1) ? AccessToken.VERSION.V1 : AccessToken.VERSION.V2);
+        return new JWTInfo(parsePayload(jwtBytes, jwt.firstDot + 1, jwt.secondDot), version, keyId);
+    }
+
+    /**
+     * Finds the parts of a JWT, and checks whether it has a V1 or V2 header. It does not verify the JWT.
+     */
+    public static ParsedJWT parseJWT(String jwt) throws JWTException {
+        initHeader();
+        int firstDot = jwt.indexOf('.');
+        int secondDot = getSecondDotIndex(jwt);
+        AccessToken.VERSION version = null;
+        if (hasHeader(jwt, firstDot, JWT.HEADERv1)) {
+            version = AccessToken.VERSION.V1;
+        } else if (hasHeader(jwt, firstDot, JWT.HEADERv2)) {
+            version = AccessToken.VERSION.V2;
+        }
+        return new ParsedJWT(jwt, firstDot, secondDot, version);
+    }
+
+    /**
+     * Returns the key id from the header of a V3 JWT, or null for V1 and V2 JWTs, which do not have one. This does
+     * not verify the JWT.
+     */
+    @Nullable
+    public static String getKeyIdWithoutVerifying(String jwt) throws JWTException {
+        ParsedJWT parsedJWT = parseJWT(jwt);
+        if (parsedJWT.version != null) {
+            return null;
+        }
+        return parseHeaderV3(jwt, parsedJWT.firstDot).keyId;
     }
 
     public static JWTInfo getPayloadWithoutVerifying(String jwt) {
         initHeader();
-        String[] splittedInput = jwt.split("\\.");
-        return new JWTInfo(new JsonParser().parse(Utils.convertFromBase64(splittedInput[1])),
-                splittedInput[0].equals(JWT.HEADERv1) ? AccessToken.VERSION.V1 : AccessToken.VERSION.V2);
+        int firstDot = jwt.indexOf('.');
+        int secondDot = jwt.indexOf('.', firstDot + 1);
+        if (secondDot == -1) {
+            secondDot = jwt.length();
+        }
+        AccessToken.VERSION version;
+        String keyId = null;
+        if (hasHeader(jwt, firstDot, JWT.HEADERv1)) {
+            version = AccessToken.VERSION.V1;
+        } else if (hasHeader(jwt, firstDot, JWT.HEADERv2)) {
+            version = AccessToken.VERSION.V2;
+        } else {
+            try {
+                JWTHeader header = parseHeaderV3(jwt, firstDot);
+                version = header.version;
+                keyId = header.keyId;
+            } catch (JWTException e) {
+                version = AccessToken.VERSION.V2;
+            }
+        }
+        return new JWTInfo(parsePayload(jwt.getBytes(StandardCharsets.US_ASCII), firstDot + 1, secondDot), version,
+                keyId);
+    }
+
+    /**
+     * Returns the index of the dot before the signature, making sure that the JWT has exactly three parts.
+     */
+    private static int getSecondDotIndex(String jwt) throws JWTException {
+        int firstDot = jwt.indexOf('.');
+        int secondDot = firstDot == -1 ? -1 : jwt.indexOf('.', firstDot + 1);
+        if (secondDot == -1 || jwt.indexOf('.', secondDot + 1) != -1) {
+            throw new JWTException("Invalid JWT");
+        }
+        return secondDot;
+    }
+
+    private static JsonElement parsePayload(byte[] jwtBytes, int start, int end) {
+        ByteBuffer payload = Base64.getDecoder().decode(ByteBuffer.wrap(jwtBytes, start, end - start));
+        return new JsonParser().parse(new String(payload.array(), payload.arrayOffset() + payload.position(),
+                payload.remaining(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the (base64 encoded) header of V3 JWTs signed with the given key. Since it only depends on the key,
+     * it can be created once per key and compared against the header of a token using ParsedJWT.hasHeader.
+     */
+    public static String createHeaderV3(String keyId) {
+        JsonObject header = new JsonObject();
+        header.addProperty("alg", "RS256");
+        header.addProperty("typ", "JWT");
+        header.addProperty("version", "3");
+        header.addProperty("kid", keyId);
+        return Utils.convertToBase64(header.toString());
+    }
+
+    private static boolean hasHeader(String jwt, int headerEnd, String expectedHeader) {
+        return headerEnd == expectedHeader.length() && jwt.startsWith(expectedHeader);
+    }
+
+    private static JWTHeader parseHeaderV3(String jwt, int headerEnd) throws JWTException {
+        if (headerEnd < 0) {
+            throw new JWTException("JWT header mismatch");
+        }
+        String header = jwt.substring(0, headerEnd);
+        // V3 headers contain the key id, so we cannot compare them against a constant. Instead, we read the kid
+        // and check that the header is exactly what we would have created for it.
+        String keyId;
+        try {
+            JsonElement kid = new JsonParser().parse(Utils.convertFromBase64(header)).getAsJsonObject().get("kid");
+            keyId = kid == null ? null : kid.getAsString();
+        } catch (RuntimeException e) {
+            throw new JWTException("JWT header mismatch");
+        }
+        if (keyId == null || !header.equals(createHeaderV3(keyId))) {
+            throw new JWTException("JWT header mismatch");
+        }
+        return new JWTHeader(AccessToken.VERSION.V3, keyId);
+    }
+
+    /**
+     * The positions of the parts of a JWT, found once so that checking its header and verifying its signature do not
+     * need to look for them again.
+     */
+    public static class ParsedJWT {
+        final String jwt;
+        final int firstDot;
+        final int secondDot;
+        // V1 or V2 if the JWT has one of those headers, null otherwise.
+        @Nullable
+        public final AccessToken.VERSION version;
+
+        ParsedJWT(String jwt, int firstDot, int secondDot, @Nullable AccessToken.VERSION version) {
+            this.jwt = jwt;
+            this.firstDot = firstDot;
+            this.secondDot = secondDot;
+            this.version = version;
+        }
+
+        public boolean hasHeader(String expectedHeader) {
+            return JWT.hasHeader(this.jwt, this.firstDot, expectedHeader);
+        }
+    }
+
+    private static class JWTHeader {
+        final AccessToken.VERSION version;
+        @Nullable
+        final String keyId;
+
+        JWTHeader(AccessToken.VERSION version, @Nullable String keyId) {
+            this.version = version;
+            this.keyId = keyId;
+        }
     }
 
     public static class JWTException extends Exception {
@@ -102,9 +303,17 @@ public class JWT {
 
         public final AccessToken.VERSION version;
 
+        @Nullable
+        public final String keyId;
+
         public JWTInfo(JsonElement payload, AccessToken.VERSION version) {
+            this(payload, version, null);
+        }
+
+        public JWTInfo(JsonElement payload, AccessToken.VERSION version, @Nullable String keyId) {
             this.payload = payload;
             this.version = version;
+            this.keyId = keyId;
         }
     }
 }
@@ -16,7 +16,6 @@
 
 package io.supertokens.session.refreshToken;
 
-import com.google.gson.Gson;
 import io.supertokens.Main;
 import io.supertokens.config.Config;
 import io.supertokens.exceptions.UnauthorisedException;
@@ -30,6 +29,7 @@ import javax.annotation.Nullable;
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -40,7 +40,6 @@ public class RefreshToken {
 
     public static RefreshTokenInfo getInfoFromRefreshToken(@Nonnull Main main, @Nonnull String token)
             throws UnauthorisedException, StorageQueryException, StorageTransactionLogicException {
-        String key = RefreshTokenKey.getInstance(main).getKey();
         try {
             TYPE tokenType = getTypeFromToken(token);
 
@@ -51,8 +50,14 @@ public class RefreshToken {
                         "Refresh token split with dot yielded an array of length: " + splittedToken.length);
             }
             String nonce = splittedToken[1];
-            String decrypted = Utils.decrypt(splittedToken[0], key);
-            RefreshTokenPayload tokenPayload = new Gson().fromJson(decrypted, RefreshTokenPayload.class);
+            String decrypted;
+            if (tokenType == TYPE.DERIVED_KEY) {
+                decrypted = Utils.decrypt(splittedToken[0], RefreshTokenKey.getInstance(main).getAESKey());
+            } else {
+                // older tokens derive the AES key from the master key (with the token's IV as the salt) each time
+                decrypted = Utils.decrypt(splittedToken[0], RefreshTokenKey.getInstance(main).getKey());
+            }
+            RefreshTokenPayload tokenPayload = Utils.getGson().fromJson(decrypted, RefreshTokenPayload.class);
             if (tokenPayload.userId == null || tokenPayload.sessionHandle == null
                     || !nonce.equals(tokenPayload.nonce)) {
                 throw new UnauthorisedException("Invalid refresh token");
@@ -70,13 +75,21 @@ public class RefreshToken {
             throws NoSuchAlgorithmException, StorageQueryException, NoSuchPaddingException, InvalidKeyException,
             IllegalBlockSizeException, BadPaddingException, StorageTransactionLogicException,
             InvalidAlgorithmParameterException, InvalidKeySpecException {
-        String key = RefreshTokenKey.getInstance(main).getKey();
         String nonce = Utils.hashSHA256(UUID.randomUUID().toString());
         RefreshTokenPayload payload = new RefreshTokenPayload(sessionHandle, userId, parentRefreshTokenHash1, nonce,
                 antiCsrfToken);
-        String payloadSerialised = new Gson().toJson(payload);
-        String encryptedPayload = Utils.encrypt(payloadSerialised, key);
-        String token = encryptedPayload + "." + nonce + "." + TYPE.FREE_OPTIMISED.toString();
+        String payloadSerialised = Utils.getGson().toJson(payload);
+        String token;
+        if (Config.getConfig(main).getRefreshTokenDerivedKey()) {
+            SecretKey key = RefreshTokenKey.getInstance(main).getAESKey();
+            String encryptedPayload = Utils.encrypt(payloadSerialised, key);
+            token = encryptedPayload + "." + nonce + "." + TYPE.DERIVED_KEY.toString();
+        } else {
+            // cores older than 3.8.0 cannot read V3 tokens, so they are only created if enabled in the config
+            String key = RefreshTokenKey.getInstance(main).getKey();
+            String encryptedPayload = Utils.encrypt(payloadSerialised, key);
+            token = encryptedPayload + "." + nonce + "." + TYPE.FREE_OPTIMISED.toString();
+        }
         long now = System.currentTimeMillis();
         return new TokenInfo(token, now + Config.getConfig(main).getRefreshTokenValidity(), now);
     }
@@ -97,7 +110,9 @@ public class RefreshToken {
     }
 
     public enum TYPE {
-        FREE("V0"), PAID("V1"), FREE_OPTIMISED("V2");
+        // V3 tokens are encrypted with an AES key that is derived from the master key only once (see
+        // RefreshTokenKey.getAESKey), instead of per token.
+        FREE("V0"), PAID("V1"), FREE_OPTIMISED("V2"), DERIVED_KEY("V3");
 
         private String version;
 
@@ -31,14 +31,21 @@ import io.supertokens.pluginInterface.session.sqlStorage.SessionSQLStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.Utils;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 
 public class RefreshTokenKey extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.session.refreshToken.RefreshTokenKey";
+    // used as the HKDF info when deriving the AES key for V3 refresh tokens from the master key
+    private static final byte[] AES_KEY_INFO = "supertokens refresh token aes key".getBytes(StandardCharsets.UTF_8);
     private final Main main;
     private String key;
+    private SecretKey aesKey;
 
     private RefreshTokenKey(Main main) {
         this.main = main;
@@ -73,6 +80,23 @@ public class RefreshTokenKey extends ResourceDistributor.SingletonResource {
         return this.key;
     }
 
+    /**
+     * Returns the AES key used to encrypt V3 refresh tokens. It is derived from the master key once, so encrypting
+     * and decrypting a token does not need to run a key derivation function.
+     */
+    public SecretKey getAESKey() throws StorageQueryException, StorageTransactionLogicException {
+        if (this.aesKey == null) {
+            try {
+                this.aesKey = new SecretKeySpec(
+                        Utils.hkdfSHA256(getKey().getBytes(StandardCharsets.UTF_8), null, AES_KEY_INFO, 32), "AES");
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new StorageTransactionLogicException(e);
+            }
+        }
+
+        return this.aesKey;
+    }
+
     private String maybeGenerateNewKeyAndUpdateInDb() throws StorageQueryException, StorageTransactionLogicException {
         SessionStorage storage = StorageLayer.getSessionStorage(main);
 
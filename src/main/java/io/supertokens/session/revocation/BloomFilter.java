@@ -0,0 +1,94 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.session.revocation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * A bloom filter of strings. It can say that a string has definitely not been added, or that it may have been added.
+ * Adding and checking can happen concurrently.
+ * */
+class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int numberOfBits;
+    private final int numberOfHashes;
+    private final int capacity;
+    private final AtomicInteger numberOfInsertions = new AtomicInteger(0);
+
+    /**
+     * @param capacity          the number of strings after which the false positive rate goes above
+     *                          falsePositiveRate
+     * @param falsePositiveRate the chance of mightContain returning true for a string that was not added
+     */
+    BloomFilter(int capacity, double falsePositiveRate) {
+        long numberOfBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numberOfBits = (int) Math.max(64, Math.min(numberOfBits, Integer.MAX_VALUE - 63));
+        this.numberOfHashes = Math.max(1, (int) Math.round((double) this.numberOfBits / capacity * Math.log(2)));
+        this.bits = new AtomicLongArray((this.numberOfBits + 63) / 64);
+        this.capacity = capacity;
+    }
+
+    void add(String value) {
+        long hash = hash(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 0; i < this.numberOfHashes; i++) {
+            int bit = Math.floorMod(hash1 + i * hash2, this.numberOfBits);
+            long mask = 1L << (bit % 64);
+            this.bits.getAndAccumulate(bit / 64, mask, (current, m) -> current | m);
+        }
+        this.numberOfInsertions.incrementAndGet();
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 0; i < this.numberOfHashes; i++) {
+            int bit = Math.floorMod(hash1 + i * hash2, this.numberOfBits);
+            if ((this.bits.get(bit / 64) & (1L << (bit % 64))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getNumberOfInsertions() {
+        return this.numberOfInsertions.get();
+    }
+
+    boolean isFull() {
+        return this.numberOfInsertions.get() >= this.capacity;
+    }
+
+    // 64 bit FNV-1a followed by the murmur3 finaliser, so that both halves of the result are well mixed
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
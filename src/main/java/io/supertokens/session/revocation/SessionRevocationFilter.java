@@ -0,0 +1,156 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.session.revocation;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.session.SessionStorage;
+import io.supertokens.storageLayer.StorageLayer;
+
+import javax.annotation.Nullable;
+
+/**
+ * Lets a core verify access tokens with access_token_blacklisting enabled without querying the db each time.
+ *
+ * Every core writes the handles of sessions it revokes (or whose JWT payload it changes) to a revocation log in the
+ * db before changing the session, and keeps a bloom filter of the handles logged within the last
+ * access_token_validity. The SyncSessionRevocations cronjob adds newly logged handles to the filter every
+ * access_token_revocation_filter_sync_interval seconds, and rebuilds it once its oldest entries are no longer needed.
+ * A session only needs to be looked up in the db if the filter says that it may be in the log.
+ */
+public class SessionRevocationFilter extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.session.revocation.SessionRevocationFilter";
+
+    static final double FALSE_POSITIVE_RATE = 0.01;
+    static final int MIN_CAPACITY = 10000;
+
+    // syncs read a bit more of the log than is needed, in case the clocks of the cores are not exactly in sync
+    public static final long SYNC_OVERLAP_MS = 5000;
+
+    // if this many syncs in a row fail, we stop trusting the filter until the next successful one
+    private static final int MAX_MISSED_SYNCS = 3;
+
+    private final Main main;
+
+    // null until the first sync
+    @Nullable
+    private volatile BloomFilter filter = null;
+    // set while the filter is being rebuilt, so that sessions revoked on this core during the rebuild are not missed
+    @Nullable
+    private volatile BloomFilter filterBeingBuilt = null;
+    private volatile long lastSyncTime = 0;
+    private long filterCreatedTime = 0;
+
+    private SessionRevocationFilter(Main main) {
+        this.main = main;
+    }
+
+    public static SessionRevocationFilter getInstance(Main main) {
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor().getResource(RESOURCE_KEY);
+        if (instance == null) {
+            instance = main.getResourceDistributor().setResource(RESOURCE_KEY, new SessionRevocationFilter(main));
+        }
+        return (SessionRevocationFilter) instance;
+    }
+
+    public static boolean isEnabled(Main main) {
+        CoreConfig config = Config.getConfig(main);
+        return config.getAccessTokenBlacklisting() && config.getAccessTokenRevocationFilterSyncInterval() > 0;
+    }
+
+    /**
+     * Must be called before the sessions are deleted or their JWT payload is changed, so that another core never
+     * sees the change without also being able to see it in the log.
+     */
+    public static void logRevokedSessions(Main main, String[] sessionHandles) throws StorageQueryException {
+        if (!isEnabled(main) || sessionHandles.length == 0) {
+            return;
+        }
+        StorageLayer.getSessionStorage(main).addToSessionRevocationLog(sessionHandles, System.currentTimeMillis());
+
+        SessionRevocationFilter instance = getInstance(main);
+        // filterBeingBuilt is read before filter, so that if a rebuild finishes in between, the handles still end up
+        // in the new filter.
+        BloomFilter beingBuilt = instance.filterBeingBuilt;
+        BloomFilter current = instance.filter;
+        for (String sessionHandle : sessionHandles) {
+            if (beingBuilt != null) {
+                beingBuilt.add(sessionHandle);
+            }
+            if (current != null) {
+                current.add(sessionHandle);
+            }
+        }
+    }
+
+    /**
+     * @return false only if the session has definitely not been revoked (or had its JWT payload changed) within
+     * the last access_token_validity, as of the last sync
+     */
+    public boolean mightBeRevoked(String sessionHandle) {
+        if (!isEnabled(main)) {
+            return true;
+        }
+        BloomFilter current = this.filter;
+        long maxTimeSinceLastSync = MAX_MISSED_SYNCS
+                * (Config.getConfig(main).getAccessTokenRevocationFilterSyncInterval() * 1000L);
+        if (current == null || System.currentTimeMillis() - this.lastSyncTime > maxTimeSinceLastSync) {
+            return true;
+        }
+        return current.mightContain(sessionHandle);
+    }
+
+    /**
+     * Adds the handles logged since the last sync to the filter. The filter is rebuilt instead if it has handles
+     * that no access token can still be valid for, or if it has too many handles for its size.
+     */
+    public synchronized void sync() throws StorageQueryException {
+        SessionStorage storage = StorageLayer.getSessionStorage(main);
+        long now = System.currentTimeMillis();
+        long window = Config.getConfig(main).getAccessTokenValidity() + SYNC_OVERLAP_MS;
+
+        BloomFilter current = this.filter;
+        if (current == null || now - this.filterCreatedTime >= window || current.isFull()) {
+            // handles logged before (now - window) are only needed for access tokens that have already expired.
+            // The new filter is sized by how many handles the current one has. If that is too small, it will be
+            // full, and so rebuilt with a bigger size in the next sync.
+            BloomFilter newFilter = new BloomFilter(
+                    Math.max(MIN_CAPACITY, current == null ? 0 : current.getNumberOfInsertions() * 2),
+                    FALSE_POSITIVE_RATE);
+            this.filterBeingBuilt = newFilter;
+            try {
+                for (String sessionHandle : storage.getSessionHandlesInRevocationLogSince(now - window)) {
+                    newFilter.add(sessionHandle);
+                }
+                this.filter = newFilter;
+            } finally {
+                this.filterBeingBuilt = null;
+            }
+            this.filterCreatedTime = now;
+        } else {
+            for (String sessionHandle : storage.getSessionHandlesInRevocationLogSince(
+                    this.lastSyncTime - SYNC_OVERLAP_MS)) {
+                current.add(sessionHandle);
+            }
+        }
+        this.lastSyncTime = now;
+    }
+}
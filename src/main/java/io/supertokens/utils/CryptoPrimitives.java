@@ -0,0 +1,100 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.utils;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.Signature;
+
+/**
+ * Hands out crypto engines that are cached per thread, so that the hot paths (hashing refresh tokens, signing and
+ * verifying access tokens, encrypting refresh tokens) do not have to look up a provider and create a new engine for
+ * each call.
+ *
+ * An engine returned from here must only be used by the calling thread and must not be held on to after the
+ * operation is done, since the next borrow on the same thread returns the same object.
+ */
+public class CryptoPrimitives {
+
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = new ThreadLocal<>();
+    private static final ThreadLocal<Signature> SHA256_WITH_RSA = new ThreadLocal<>();
+    private static final ThreadLocal<Signature> ED25519 = new ThreadLocal<>();
+    private static final ThreadLocal<Cipher> AES_GCM = new ThreadLocal<>();
+
+    // SecureRandom is thread safe, so there is no need to create one per call or per thread
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private CryptoPrimitives() {
+    }
+
+    /**
+     * The returned digest has been reset.
+     */
+    public static MessageDigest getSHA256Digest() throws NoSuchAlgorithmException {
+        MessageDigest digest = SHA256_DIGEST.get();
+        if (digest == null) {
+            digest = MessageDigest.getInstance("SHA-256");
+            SHA256_DIGEST.set(digest);
+        } else {
+            digest.reset();
+        }
+        return digest;
+    }
+
+    /**
+     * The caller must call initSign or initVerify before using the returned object, which also resets it.
+     */
+    public static Signature getSHA256WithRSASignature() throws NoSuchAlgorithmException {
+        Signature signature = SHA256_WITH_RSA.get();
+        if (signature == null) {
+            signature = Signature.getInstance("SHA256withRSA");
+            SHA256_WITH_RSA.set(signature);
+        }
+        return signature;
+    }
+
+    /**
+     * The caller must call initSign or initVerify before using the returned object, which also resets it.
+     */
+    public static Signature getEd25519Signature() throws NoSuchAlgorithmException {
+        Signature signature = ED25519.get();
+        if (signature == null) {
+            signature = Signature.getInstance("Ed25519");
+            ED25519.set(signature);
+        }
+        return signature;
+    }
+
+    /**
+     * The caller must call init before using the returned object, which also resets it.
+     */
+    public static Cipher getAESGCMCipher() throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Cipher cipher = AES_GCM.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            AES_GCM.set(cipher);
+        }
+        return cipher;
+    }
+
+    public static SecureRandom getSecureRandom() {
+        return SECURE_RANDOM;
+    }
+}
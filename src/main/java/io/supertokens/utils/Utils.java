@@ -16,15 +16,13 @@
 
 package io.supertokens.utils;
 
+import javax.annotation.Nullable;
 import javax.crypto.*;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-
-import io.supertokens.session.accessToken.AccessTokenSigningKey.KeyInfo;
+import com.google.gson.Gson;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
@@ -37,13 +35,19 @@ import java.security.spec.KeySpec;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
-import java.util.List;
 import java.util.Base64.Decoder;
 import java.util.Base64.Encoder;
 import java.util.UUID;
 
 public class Utils {
 
+    // Gson is thread safe, so we share one instance instead of creating one each time we need it
+    private static final Gson gson = new Gson();
+
+    public static Gson getGson() {
+        return gson;
+    }
+
     public static String normaliseEmail(String email) {
         // we assume that the email's syntax is correct here.
 
@@ -75,7 +79,7 @@ public class Utils {
     }
 
     public static String hashSHA256(String base) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        MessageDigest digest = CryptoPrimitives.getSHA256Digest();
         byte[] hash = digest.digest(stringToBytes(base));
         return bytesToString(hash);
     }
@@ -85,8 +89,8 @@ public class Utils {
         byte[] random = new byte[64];
         byte[] salt = new byte[64];
 
-        new SecureRandom().nextBytes(random);
-        new SecureRandom().nextBytes(salt);
+        CryptoPrimitives.getSecureRandom().nextBytes(random);
+        CryptoPrimitives.getSecureRandom().nextBytes(salt);
 
         int iterations = 1000;
         return iterations + ":" + toHex(salt) + ":"
@@ -120,18 +124,15 @@ public class Utils {
             throws NoSuchAlgorithmException, InvalidKeySpecException, NoSuchPaddingException, InvalidKeyException,
             InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
 
-        // Prepare the nonce
-        SecureRandom secureRandom = new SecureRandom();
-
         // Nonce should be 12 bytes
         byte[] iv = new byte[12];
-        secureRandom.nextBytes(iv);
+        CryptoPrimitives.getSecureRandom().nextBytes(iv);
 
         // Prepare your key/password
         byte[] key = pbkdf2(masterKey.toCharArray(), iv, 100, 32 * 8);
         SecretKey secretKey = new SecretKeySpec(key, "AES");
 
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        Cipher cipher = CryptoPrimitives.getAESGCMCipher();
         GCMParameterSpec parameterSpec = new GCMParameterSpec(128, iv);
 
         // Encryption mode on!
@@ -174,7 +175,7 @@ public class Utils {
         byte[] cipherBytes = new byte[byteBuffer.remaining()];
         byteBuffer.get(cipherBytes);
 
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        Cipher cipher = CryptoPrimitives.getAESGCMCipher();
         GCMParameterSpec parameterSpec = new GCMParameterSpec(128, iv);
 
         // Encryption mode on!
@@ -184,6 +185,76 @@ public class Utils {
         return new String(cipher.doFinal(cipherBytes));
     }
 
+    /**
+     * Encrypts with AES-GCM using an already derived key. Unlike {@link #encrypt(String, String)}, this does not run
+     * a key derivation for each call. A random nonce is generated for each call and prepended to the output.
+     */
+    public static String encrypt(String plaintext, SecretKey secretKey)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException,
+            InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        // Nonce should be 12 bytes
+        byte[] iv = new byte[12];
+        CryptoPrimitives.getSecureRandom().nextBytes(iv);
+
+        Cipher cipher = CryptoPrimitives.getAESGCMCipher();
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(128, iv));
+        byte[] encryptedData = cipher.doFinal(stringToBytes(plaintext));
+
+        ByteBuffer byteBuffer = ByteBuffer.allocate(iv.length + encryptedData.length);
+        byteBuffer.put(iv);
+        byteBuffer.put(encryptedData);
+
+        return Base64.getEncoder().encodeToString(byteBuffer.array());
+    }
+
+    /**
+     * Decrypts the output of {@link #encrypt(String, SecretKey)}
+     */
+    public static String decrypt(String encdata, SecretKey secretKey)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException,
+            InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        byte[] data = Base64.getDecoder().decode(encdata);
+        if (data.length < 12) {
+            throw new IllegalBlockSizeException("Encrypted data is too short");
+        }
+
+        Cipher cipher = CryptoPrimitives.getAESGCMCipher();
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(128, data, 0, 12));
+        return new String(cipher.doFinal(data, 12, data.length - 12), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * HKDF (RFC 5869) with HMAC-SHA256
+     */
+    public static byte[] hkdfSHA256(byte[] inputKeyMaterial, @Nullable byte[] salt, byte[] info, int length)
+            throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        int hashLength = mac.getMacLength();
+        if (length > 255 * hashLength) {
+            throw new IllegalArgumentException("Cannot derive more than " + (255 * hashLength) + " bytes");
+        }
+
+        // extract
+        mac.init(new SecretKeySpec(salt == null || salt.length == 0 ? new byte[hashLength] : salt, "HmacSHA256"));
+        byte[] pseudoRandomKey = mac.doFinal(inputKeyMaterial);
+
+        // expand
+        mac.init(new SecretKeySpec(pseudoRandomKey, "HmacSHA256"));
+        byte[] output = new byte[length];
+        byte[] block = new byte[0];
+        int generated = 0;
+        for (int i = 1; generated < length; i++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) i);
+            block = mac.doFinal();
+            int toCopy = Math.min(block.length, length - generated);
+            System.arraycopy(block, 0, output, generated, toCopy);
+            generated += toCopy;
+        }
+        return output;
+    }
+
     public static byte[] pbkdf2(char[] text, byte[] salt, int iterationCount, int keyLength)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
 
@@ -205,15 +276,31 @@ public class Utils {
         return new PubPriKey(pubStr, priStr);
     }
 
-    public static String signWithPrivateKey(String content, String privateKey)
-            throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException, SignatureException {
-        Signature sign = Signature.getInstance("SHA256withRSA");
+    public static PublicKey getPublicKeyFromString(String publicKey)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        Base64.Decoder decoder = Base64.getDecoder();
+        X509EncodedKeySpec ks = new X509EncodedKeySpec(decoder.decode(publicKey));
+        KeyFactory kf = KeyFactory.getInstance("RSA");
+        return kf.generatePublic(ks);
+    }
+
+    public static PrivateKey getPrivateKeyFromString(String privateKey)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
         Base64.Decoder decoder = Base64.getDecoder();
         PKCS8EncodedKeySpec ks = new PKCS8EncodedKeySpec(decoder.decode(privateKey));
         KeyFactory kf = KeyFactory.getInstance("RSA");
-        PrivateKey pvt = kf.generatePrivate(ks);
+        return kf.generatePrivate(ks);
+    }
 
-        sign.initSign(pvt);
+    public static String signWithPrivateKey(String content, String privateKey)
+            throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException, SignatureException {
+        return signWithPrivateKey(content, getPrivateKeyFromString(privateKey));
+    }
+
+    public static String signWithPrivateKey(String content, PrivateKey privateKey)
+            throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+        Signature sign = CryptoPrimitives.getSHA256WithRSASignature();
+        sign.initSign(privateKey);
         sign.update(stringToBytes(content));
         Base64.Encoder encoder = Base64.getEncoder();
         return encoder.encodeToString(sign.sign());
@@ -221,17 +308,30 @@ public class Utils {
 
     public static boolean verifyWithPublicKey(String content, String signature, String publicKey)
             throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException, SignatureException {
-        Signature sign = Signature.getInstance("SHA256withRSA");
-        Base64.Decoder decoder = Base64.getDecoder();
-        X509EncodedKeySpec ks = new X509EncodedKeySpec(decoder.decode(publicKey));
-        KeyFactory kf = KeyFactory.getInstance("RSA");
-        PublicKey pub = kf.generatePublic(ks);
+        return verifyWithPublicKey(content, signature, getPublicKeyFromString(publicKey));
+    }
 
-        sign.initVerify(pub);
+    public static boolean verifyWithPublicKey(String content, String signature, PublicKey publicKey)
+            throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+        Signature sign = CryptoPrimitives.getSHA256WithRSASignature();
+        Base64.Decoder decoder = Base64.getDecoder();
+        sign.initVerify(publicKey);
         sign.update(stringToBytes(content));
         return sign.verify(decoder.decode(signature));
     }
 
+    /**
+     * Verifies the signature of the first contentLength bytes of content. This lets callers verify part of a buffer
+     * (like the signing input of a JWT) without copying it.
+     */
+    public static boolean verifyWithPublicKey(byte[] content, int contentLength, ByteBuffer signature,
+            PublicKey publicKey) throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+        Signature sign = CryptoPrimitives.getSHA256WithRSASignature();
+        sign.initVerify(publicKey);
+        sign.update(content, 0, contentLength);
+        return sign.verify(signature.array(), signature.arrayOffset() + signature.position(), signature.remaining());
+    }
+
     public static class PubPriKey {
         public String publicKey;
         public String privateKey;
@@ -263,16 +363,4 @@ public class Utils {
         ps.close();
         return baos.toString();
     }
-
-    public static JsonArray keyListToJson(List<KeyInfo> keys) {
-        JsonArray jwtSigningPublicKeyListJSON = new JsonArray();
-        for (KeyInfo keyInfo : keys) {
-            JsonObject keyJSON = new JsonObject();
-            keyJSON.addProperty("publicKey", new PubPriKey(keyInfo.value).publicKey);
-            keyJSON.addProperty("expiryTime", keyInfo.expiryTime);
-            keyJSON.addProperty("createdAt", keyInfo.createdAtTime);
-            jwtSigningPublicKeyListJSON.add(keyJSON);
-        }
-        return jwtSigningPublicKeyListJSON;
-    }
 }
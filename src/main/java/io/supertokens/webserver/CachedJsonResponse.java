@@ -0,0 +1,53 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver;
+
+import io.supertokens.utils.Utils;
+
+import javax.annotation.Nullable;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A JSON response that is rendered once from an in-memory snapshot (like the access token signing key ring), and
+ * then sent as it is until the snapshot changes. Responses to GET requests can also have an ETag, which is a hash of
+ * the body, so cores with the same keys give the same ETag.
+ */
+public class CachedJsonResponse {
+
+    private final Object renderedFrom;
+    final String body;
+    @Nullable
+    final String eTag;
+
+    private CachedJsonResponse(Object renderedFrom, String body, @Nullable String eTag) {
+        this.renderedFrom = renderedFrom;
+        this.body = body;
+        this.eTag = eTag;
+    }
+
+    public CachedJsonResponse(Object renderedFrom, String body) {
+        this(renderedFrom, body, null);
+    }
+
+    public static CachedJsonResponse withETag(Object renderedFrom, String body) throws NoSuchAlgorithmException {
+        return new CachedJsonResponse(renderedFrom, body, "\"" + Utils.hashSHA256(body) + "\"");
+    }
+
+    public boolean isRenderedFrom(Object snapshot) {
+        return this.renderedFrom == snapshot;
+    }
+}
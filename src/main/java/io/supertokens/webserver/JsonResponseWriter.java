@@ -0,0 +1,119 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver;
+
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
+import io.supertokens.session.info.SessionInfo;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.session.info.TokenInfo;
+import io.supertokens.utils.Utils;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Writes JSON responses straight to the servlet's writer, instead of building a JsonObject first and then turning
+ * it into a String. The output is the same as what we get from serialising the objects using Gson: null fields are
+ * left out, and the fields of a class are written in the order in which they are declared.
+ */
+public class JsonResponseWriter {
+
+    public interface Body {
+        void writeTo(JsonWriter writer) throws IOException;
+    }
+
+    static void write(PrintWriter out, Body body) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setSerializeNulls(false);
+        body.writeTo(writer);
+        writer.flush();
+        out.println();
+    }
+
+    /**
+     * Writes an object made of the fields written by fields, followed by serialisedFields, which must be a comma
+     * separated list of already serialised JSON fields (like the ones from AccessTokenSigningKey.SigningKeysFragment).
+     * Our version of gson cannot write raw JSON through a JsonWriter, so the serialised fields and the closing brace
+     * are written to out directly. fields must write at least one field.
+     */
+    static void writeObject(PrintWriter out, Body fields, String serialisedFields) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setSerializeNulls(false);
+        writer.beginObject();
+        fields.writeTo(writer);
+        writer.flush();
+        out.print(',');
+        out.print(serialisedFields);
+        out.println('}');
+    }
+
+    /**
+     * Same as writeObject, but returns the object as a String
+     */
+    public static String toJsonString(Body fields, String serialisedFields) throws IOException {
+        StringWriter result = new StringWriter();
+        PrintWriter out = new PrintWriter(result);
+        writeObject(out, fields, serialisedFields);
+        out.flush();
+        return result.toString().trim();
+    }
+
+    /**
+     * Writes the fields of the holder into the object that is currently open in the writer, so that the caller can
+     * add its own fields (like status) to the same object.
+     */
+    public static void writeSessionInformationHolder(JsonWriter writer, SessionInformationHolder holder)
+            throws IOException {
+        writer.name("session");
+        writeSessionInfo(writer, holder.session);
+        writeTokenInfo(writer, "accessToken", holder.accessToken);
+        writeTokenInfo(writer, "refreshToken", holder.refreshToken);
+        writeTokenInfo(writer, "idRefreshToken", holder.idRefreshToken);
+        writer.name("antiCsrfToken").value(holder.antiCsrfToken);
+    }
+
+    public static void writeJsonElement(JsonWriter writer, JsonElement element) throws IOException {
+        // Gson.toJson(element, writer) would override the settings of the writer (like escaping html), so we use the
+        // adapter directly.
+        Utils.getGson().getAdapter(JsonElement.class).write(writer, element);
+    }
+
+    private static void writeSessionInfo(JsonWriter writer, SessionInfo session) throws IOException {
+        writer.beginObject();
+        writer.name("handle").value(session.handle);
+        writer.name("userId").value(session.userId);
+        writer.name("userDataInJWT");
+        writeJsonElement(writer, session.userDataInJWT);
+        writer.endObject();
+    }
+
+    private static void writeTokenInfo(JsonWriter writer, String name, @Nullable TokenInfo tokenInfo)
+            throws IOException {
+        if (tokenInfo == null) {
+            return;
+        }
+        writer.name(name);
+        writer.beginObject();
+        writer.name("token").value(tokenInfo.token);
+        writer.name("expiry").value(tokenInfo.expiry);
+        writer.name("createdTime").value(tokenInfo.createdTime);
+        writer.endObject();
+    }
+}
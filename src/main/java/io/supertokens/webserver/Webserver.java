@@ -33,6 +33,7 @@ import io.supertokens.webserver.api.emailverification.UnverifyEmailAPI;
 import io.supertokens.webserver.api.emailverification.VerifyEmailAPI;
 import io.supertokens.webserver.api.jwt.JWKSAPI;
 import io.supertokens.webserver.api.jwt.JWTSigningAPI;
+import io.supertokens.webserver.api.jwt.JWTSigningBatchAPI;
 import io.supertokens.webserver.api.session.*;
 import io.supertokens.webserver.api.thirdparty.GetUsersByEmailAPI;
 import io.supertokens.webserver.api.thirdparty.SignInUpAPI;
@@ -147,7 +148,9 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         addAPI(new NotFoundAPI(main));
         addAPI(new HelloAPI(main));
         addAPI(new SessionAPI(main));
+        addAPI(new SessionBatchAPI(main));
         addAPI(new VerifySessionAPI(main));
+        addAPI(new VerifySessionBatchAPI(main));
         addAPI(new RefreshSessionAPI(main));
         addAPI(new SessionUserAPI(main));
         addAPI(new SessionDataAPI(main));
@@ -173,6 +176,7 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         addAPI(new RevokeAllTokensForUserAPI(main));
         addAPI(new UnverifyEmailAPI(main));
         addAPI(new JWTSigningAPI(main));
+        addAPI(new JWTSigningBatchAPI(main));
         addAPI(new JWKSAPI(main));
 
         // deprecated APIs:
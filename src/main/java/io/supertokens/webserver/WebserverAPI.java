@@ -42,10 +42,11 @@ public abstract class WebserverAPI extends HttpServlet {
         supportedVersions.add("2.8");
         supportedVersions.add("2.9");
         supportedVersions.add("2.10");
+        supportedVersions.add("2.11");
     }
 
     public static String getLatestCDIVersion() {
-        return "2.10";
+        return "2.11";
     }
 
     public WebserverAPI(Main main, String rid) {
@@ -72,6 +73,69 @@ public abstract class WebserverAPI extends HttpServlet {
         resp.getWriter().println(json.toString());
     }
 
+    protected void sendJsonResponse(int statusCode, JsonResponseWriter.Body body, HttpServletResponse resp)
+            throws IOException {
+        resp.setStatus(statusCode);
+        resp.setHeader("Content-Type", "application/json; charset=UTF-8");
+        JsonResponseWriter.write(resp.getWriter(), body);
+    }
+
+    /**
+     * Sends an object made of the fields written by fields, followed by the already serialised fields in
+     * serialisedFields. See JsonResponseWriter.writeObject
+     */
+    protected void sendJsonResponse(int statusCode, JsonResponseWriter.Body fields, String serialisedFields,
+            HttpServletResponse resp) throws IOException {
+        resp.setStatus(statusCode);
+        resp.setHeader("Content-Type", "application/json; charset=UTF-8");
+        JsonResponseWriter.writeObject(resp.getWriter(), fields, serialisedFields);
+    }
+
+    protected void sendCachedJsonResponse(CachedJsonResponse response, HttpServletResponse resp) throws IOException {
+        resp.setStatus(200);
+        resp.setHeader("Content-Type", "application/json; charset=UTF-8");
+        resp.getWriter().println(response.body);
+    }
+
+    /**
+     * For GET requests. Sends the response with its ETag, and a Cache-Control header telling the client that it can
+     * use the response for maxAgeSeconds. If the request has an If-None-Match header with the same ETag, we reply
+     * with a 304 and no body instead. The response must have been created using CachedJsonResponse.withETag.
+     */
+    protected void sendCachedJsonResponse(HttpServletRequest req, CachedJsonResponse response, long maxAgeSeconds,
+            HttpServletResponse resp) throws IOException {
+        assert response.eTag != null;
+        resp.setHeader("ETag", response.eTag);
+        resp.setHeader("Cache-Control", "max-age=" + Math.max(0, maxAgeSeconds));
+        if (ifNoneMatchHas(req.getHeader("If-None-Match"), response.eTag)) {
+            resp.setStatus(304);
+            return;
+        }
+        sendCachedJsonResponse(response, resp);
+    }
+
+    private static boolean ifNoneMatchHas(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            // If-None-Match uses weak comparison, so W/"x" matches "x"
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected boolean shouldSendSigningKeyList(HttpServletRequest req) {
+        String version = getVersionFromRequest(req);
+        return !version.equals("2.7") && !version.equals("2.8");
+    }
+
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
         this.sendTextResponse(405, "Method not supported", resp);
@@ -116,6 +180,32 @@ public abstract class WebserverAPI extends HttpServlet {
         }
     }
 
+    /**
+     * Returns true if the cdi-version of the request is minVersion or newer. Versions are of the form X.Y, and are
+     * compared numerically.
+     */
+    protected boolean isVersionAtLeast(HttpServletRequest req, String minVersion) {
+        String[] version = getVersionFromRequest(req).split("\\.");
+        String[] min = minVersion.split("\\.");
+        int major = Integer.parseInt(version[0]);
+        int minMajor = Integer.parseInt(min[0]);
+        if (major != minMajor) {
+            return major > minMajor;
+        }
+        return Integer.parseInt(version[1]) >= Integer.parseInt(min[1]);
+    }
+
+    /**
+     * For APIs that were added in minVersion of the CDI, so that they are not available to drivers that use an older
+     * version.
+     */
+    protected void assertThatVersionIsAtLeast(HttpServletRequest req, String minVersion) throws ServletException {
+        if (!isVersionAtLeast(req, minVersion)) {
+            throw new ServletException(new BadRequestException(
+                    "cdi-version " + getVersionFromRequest(req) + " does not support this API"));
+        }
+    }
+
     protected boolean versionNeeded(HttpServletRequest req) {
         return true;
     }
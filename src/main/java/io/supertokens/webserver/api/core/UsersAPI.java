@@ -16,10 +16,8 @@
 
 package io.supertokens.webserver.api.core;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.supertokens.Main;
 import io.supertokens.authRecipe.AuthRecipe;
 import io.supertokens.authRecipe.UserPaginationContainer;
@@ -109,7 +107,7 @@ public class UsersAPI extends WebserverAPI {
             JsonObject result = new JsonObject();
             result.addProperty("status", "OK");
 
-            JsonArray usersJson = new JsonParser().parse(new Gson().toJson(users.users)).getAsJsonArray();
+            JsonArray usersJson = Utils.getGson().toJsonTree(users.users).getAsJsonArray();
             result.add("users", usersJson);
 
             if (users.nextPaginationToken != null) {
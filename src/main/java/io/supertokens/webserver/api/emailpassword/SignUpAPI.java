@@ -16,9 +16,7 @@
 
 package io.supertokens.webserver.api.emailpassword;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.supertokens.Main;
 import io.supertokens.emailpassword.EmailPassword;
 import io.supertokens.output.Logging;
@@ -69,7 +67,7 @@ public class SignUpAPI extends WebserverAPI {
 
             JsonObject result = new JsonObject();
             result.addProperty("status", "OK");
-            JsonObject userJson = new JsonParser().parse(new Gson().toJson(user)).getAsJsonObject();
+            JsonObject userJson = Utils.getGson().toJsonTree(user).getAsJsonObject();
             if (super.getVersionFromRequest(req).equals("2.4")) {
                 userJson.remove("timeJoined");
             }
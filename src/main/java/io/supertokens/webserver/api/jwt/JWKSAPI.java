@@ -16,15 +16,15 @@
 
 package io.supertokens.webserver.api.jwt;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.supertokens.Main;
-import io.supertokens.jwt.JWTSigningFunctions;
+import io.supertokens.jwt.JWTSigningKey;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.utils.Utils;
+import io.supertokens.webserver.CachedJsonResponse;
 import io.supertokens.webserver.WebserverAPI;
 
 import javax.servlet.ServletException;
@@ -33,11 +33,13 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
-import java.util.List;
 
 public class JWKSAPI extends WebserverAPI {
     private static final long serialVersionUID = -3475605151671191143L;
 
+    // rendered once for each JWKS snapshot
+    private transient volatile CachedJsonResponse cachedResponse = null;
+
     public JWKSAPI(Main main) {
         super(main, RECIPE_ID.JWT.toString());
     }
@@ -50,12 +52,19 @@ public class JWKSAPI extends WebserverAPI {
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
         try {
-            List<JsonObject> jwks = JWTSigningFunctions.getJWKS(main);
-            JsonObject reply = new JsonObject();
-            JsonArray jwksJsonArray = new JsonParser().parse(new Gson().toJson(jwks)).getAsJsonArray();
-            reply.add("keys", jwksJsonArray);
-            reply.addProperty("status", "OK");
-            super.sendJsonResponse(200, reply, resp);
+            JWTSigningKey.JWKS jwks = JWTSigningKey.getInstance(main).getJWKS();
+            CachedJsonResponse response = this.cachedResponse;
+            if (response == null || !response.isRenderedFrom(jwks)) {
+                JsonObject reply = new JsonObject();
+                JsonArray jwksJsonArray = Utils.getGson().toJsonTree(jwks.keys).getAsJsonArray();
+                reply.add("keys", jwksJsonArray);
+                reply.addProperty("status", "OK");
+                response = CachedJsonResponse.withETag(jwks, reply.toString());
+                this.cachedResponse = response;
+            }
+            // clients can use the keys until we read them from the db again
+            long maxAge = (jwks.refreshAt - System.currentTimeMillis()) / 1000;
+            super.sendCachedJsonResponse(req, response, maxAge, resp);
         } catch (StorageQueryException | StorageTransactionLogicException | NoSuchAlgorithmException
                 | InvalidKeySpecException e) {
             throw new ServletException(e);
@@ -0,0 +1,178 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.jwt;
+
+import com.auth0.jwt.exceptions.JWTCreationException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.jwt.JWTSigningFunctions;
+import io.supertokens.jwt.JWTSigningKey;
+import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.output.Logging;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.utils.Utils;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JWTSigningBatchAPI extends WebserverAPI {
+    private static final long serialVersionUID = -6093218496617270157L;
+
+    public static final int MAX_BATCH_SIZE = 100;
+    public static final String JWT_CREATION_ERROR_STATUS = "JWT_CREATION_ERROR";
+
+    // shared by all batch requests, so that a burst of them cannot start an unbounded number of signings at once.
+    private transient ExecutorService executor;
+
+    public JWTSigningBatchAPI(Main main) {
+        super(main, RECIPE_ID.JWT.toString());
+    }
+
+    @Override
+    public String getPath() {
+        return "/recipe/jwt/batch";
+    }
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        this.executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "jwt-signing-batch-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+        super.destroy();
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        super.assertThatVersionIsAtLeast(req, "2.11");
+        JsonObject input = InputParser.parseJsonObjectOrThrowError(req);
+        String algorithm = InputParser.parseStringOrThrowError(input, "algorithm", false);
+        assert algorithm != null;
+
+        String jwksDomain = InputParser.parseStringOrThrowError(input, "jwksDomain", false);
+        assert jwksDomain != null;
+
+        JsonArray payloads = InputParser.parseArrayOrThrowError(input, "payloads", false);
+        assert payloads != null;
+
+        long validity = InputParser.parseLongOrThrowError(input, "validity", false);
+
+        if (validity <= 0) {
+            throw new ServletException(
+                    new WebserverAPI.BadRequestException("validity must be greater than or equal to 0"));
+        }
+
+        if (payloads.size() > MAX_BATCH_SIZE) {
+            throw new ServletException(new BadRequestException(
+                    "Field name 'payloads' cannot contain more than " + MAX_BATCH_SIZE + " elements"));
+        }
+
+        // we parse all the input before signing anything, so that a bad element fails the whole request
+        List<JsonObject> payloadObjects = new ArrayList<>();
+        for (JsonElement payload : payloads) {
+            if (!payload.isJsonObject()) {
+                throw new ServletException(
+                        new BadRequestException("Field name 'payloads' is invalid in JSON input"));
+            }
+            payloadObjects.add(payload.getAsJsonObject());
+        }
+
+        JWTSigningKey.SupportedAlgorithms supportedAlgorithm;
+        JWTSigningKey.KeyForSigning keyForSigning;
+        try {
+            supportedAlgorithm = JWTSigningFunctions.getSupportedAlgorithm(algorithm.toUpperCase());
+            // the key is fetched once, and used for all the payloads
+            keyForSigning = JWTSigningKey.getInstance(main).getKeyForSigning(supportedAlgorithm);
+        } catch (UnsupportedJWTSigningAlgorithmException e) {
+            JsonObject reply = new JsonObject();
+            reply.addProperty("status", JWTSigningAPI.UNSUPPORTED_ALGORITHM_ERROR_STATUS);
+            super.sendJsonResponse(200, reply, resp);
+            return;
+        } catch (StorageQueryException | StorageTransactionLogicException | NoSuchAlgorithmException
+                | InvalidKeySpecException e) {
+            throw new ServletException(e);
+        }
+
+        List<Future<JsonObject>> futures = new ArrayList<>();
+        for (JsonObject payload : payloadObjects) {
+            futures.add(this.executor.submit(() -> sign(supportedAlgorithm, keyForSigning, payload, jwksDomain,
+                    validity)));
+        }
+
+        try {
+            JsonArray results = new JsonArray();
+            for (Future<JsonObject> future : futures) {
+                results.add(future.get());
+            }
+            JsonObject reply = new JsonObject();
+            reply.addProperty("status", "OK");
+            reply.add("jwts", results);
+            super.sendJsonResponse(200, reply, resp);
+        } catch (ExecutionException e) {
+            throw new ServletException(e);
+        } catch (InterruptedException e) {
+            for (Future<JsonObject> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new ServletException(e);
+        }
+    }
+
+    private JsonObject sign(JWTSigningKey.SupportedAlgorithms supportedAlgorithm,
+            JWTSigningKey.KeyForSigning keyForSigning, JsonObject payload, String jwksDomain, long validity) {
+        JsonObject result = new JsonObject();
+        try {
+            String jwt = JWTSigningFunctions.createJWTToken(supportedAlgorithm, keyForSigning, payload, jwksDomain,
+                    validity);
+            result.addProperty("status", "OK");
+            result.addProperty("jwt", jwt);
+        } catch (JWTCreationException e) {
+            Logging.debug(main, Utils.exceptionStacktraceToString(e));
+            result.addProperty("status", JWT_CREATION_ERROR_STATUS);
+            result.addProperty("message", e.getMessage());
+        }
+        return result;
+    }
+}
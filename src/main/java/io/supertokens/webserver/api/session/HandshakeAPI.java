@@ -16,27 +16,30 @@
 
 package io.supertokens.webserver.api.session;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.session.accessToken.AccessTokenSigningKey;
-import io.supertokens.session.accessToken.AccessTokenSigningKey.KeyInfo;
-import io.supertokens.utils.Utils;
+import io.supertokens.session.accessToken.AccessTokenSigningKey.SigningKeysFragment;
+import io.supertokens.webserver.CachedJsonResponse;
+import io.supertokens.webserver.JsonResponseWriter;
 import io.supertokens.webserver.WebserverAPI;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.List;
 
 public class HandshakeAPI extends WebserverAPI {
     private static final long serialVersionUID = -3647598432179106404L;
 
+    // rendered once for each key ring, with and without the key list (which CDI 2.7 and 2.8 do not have)
+    private transient volatile CachedJsonResponse cachedResponseWithKeyList = null;
+    private transient volatile CachedJsonResponse cachedResponseWithoutKeyList = null;
+
     public HandshakeAPI(Main main) {
         super(main, RECIPE_ID.SESSION.toString());
     }
@@ -49,24 +52,26 @@ public class HandshakeAPI extends WebserverAPI {
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
         try {
-            JsonObject result = new JsonObject();
-            result.addProperty("status", "OK");
-
-            result.addProperty("jwtSigningPublicKey",
-                    new Utils.PubPriKey(AccessTokenSigningKey.getInstance(main).getLatestIssuedKey().value).publicKey);
-            result.addProperty("jwtSigningPublicKeyExpiryTime",
-                    AccessTokenSigningKey.getInstance(main).getKeyExpiryTime());
-
-            if (!super.getVersionFromRequest(req).equals("2.7") && !super.getVersionFromRequest(req).equals("2.8")) {
-                List<KeyInfo> keys = AccessTokenSigningKey.getInstance(main).getAllKeys();
-                JsonArray jwtSigningPublicKeyListJSON = Utils.keyListToJson(keys);
-                result.add("jwtSigningPublicKeyList", jwtSigningPublicKeyListJSON);
+            SigningKeysFragment signingKeys = AccessTokenSigningKey.getInstance(main).getSigningKeysFragment();
+            boolean includeKeyList = super.shouldSendSigningKeyList(req);
+            CachedJsonResponse response = includeKeyList ? this.cachedResponseWithKeyList
+                    : this.cachedResponseWithoutKeyList;
+            if (response == null || !response.isRenderedFrom(signingKeys)) {
+                CoreConfig config = Config.getConfig(main);
+                String body = JsonResponseWriter.toJsonString(writer -> {
+                    writer.name("status").value("OK");
+                    writer.name("accessTokenBlacklistingEnabled").value(config.getAccessTokenBlacklisting());
+                    writer.name("accessTokenValidity").value(config.getAccessTokenValidity());
+                    writer.name("refreshTokenValidity").value(config.getRefreshTokenValidity());
+                }, signingKeys.getSerialisedFields(includeKeyList));
+                response = new CachedJsonResponse(signingKeys, body);
+                if (includeKeyList) {
+                    this.cachedResponseWithKeyList = response;
+                } else {
+                    this.cachedResponseWithoutKeyList = response;
+                }
             }
-
-            result.addProperty("accessTokenBlacklistingEnabled", Config.getConfig(main).getAccessTokenBlacklisting());
-            result.addProperty("accessTokenValidity", Config.getConfig(main).getAccessTokenValidity());
-            result.addProperty("refreshTokenValidity", Config.getConfig(main).getRefreshTokenValidity());
-            super.sendJsonResponse(200, result, resp);
+            super.sendCachedJsonResponse(response, resp);
         } catch (StorageQueryException | StorageTransactionLogicException e) {
             throw new ServletException(e);
         }
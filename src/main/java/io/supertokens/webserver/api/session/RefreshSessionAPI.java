@@ -16,9 +16,7 @@
 
 package io.supertokens.webserver.api.session;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.supertokens.Main;
 import io.supertokens.exceptions.TokenTheftDetectedException;
 import io.supertokens.exceptions.UnauthorisedException;
@@ -30,6 +28,7 @@ import io.supertokens.session.Session;
 import io.supertokens.session.info.SessionInformationHolder;
 import io.supertokens.utils.Utils;
 import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.JsonResponseWriter;
 import io.supertokens.webserver.WebserverAPI;
 
 import javax.servlet.ServletException;
@@ -61,9 +60,12 @@ public class RefreshSessionAPI extends WebserverAPI {
         try {
             SessionInformationHolder sessionInfo = Session.refreshSession(main, refreshToken, antiCsrfToken,
                     enableAntiCsrf);
-            JsonObject result = new JsonParser().parse(new Gson().toJson(sessionInfo)).getAsJsonObject();
-            result.addProperty("status", "OK");
-            super.sendJsonResponse(200, result, resp);
+            super.sendJsonResponse(200, writer -> {
+                writer.beginObject();
+                JsonResponseWriter.writeSessionInformationHolder(writer, sessionInfo);
+                writer.name("status").value("OK");
+                writer.endObject();
+            }, resp);
         } catch (StorageQueryException | StorageTransactionLogicException e) {
             throw new ServletException(e);
         } catch (UnauthorisedException e) {
@@ -16,10 +16,7 @@
 
 package io.supertokens.webserver.api.session;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.supertokens.Main;
 import io.supertokens.exceptions.UnauthorisedException;
 import io.supertokens.output.Logging;
@@ -29,10 +26,10 @@ import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicExceptio
 import io.supertokens.pluginInterface.session.SessionInfo;
 import io.supertokens.session.Session;
 import io.supertokens.session.accessToken.AccessTokenSigningKey;
-import io.supertokens.session.accessToken.AccessTokenSigningKey.KeyInfo;
 import io.supertokens.session.info.SessionInformationHolder;
 import io.supertokens.utils.Utils;
 import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.JsonResponseWriter;
 import io.supertokens.webserver.WebserverAPI;
 
 import javax.crypto.BadPaddingException;
@@ -47,7 +44,6 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
-import java.util.List;
 
 public class SessionAPI extends WebserverAPI {
     private static final long serialVersionUID = 7142317017402226537L;
@@ -77,22 +73,13 @@ public class SessionAPI extends WebserverAPI {
             SessionInformationHolder sessionInfo = Session.createNewSession(main, userId, userDataInJWT,
                     userDataInDatabase, enableAntiCsrf);
 
-            JsonObject result = new JsonParser().parse(new Gson().toJson(sessionInfo)).getAsJsonObject();
+            String signingKeyFields = AccessTokenSigningKey.getInstance(main).getSigningKeysFragment()
+                    .getSerialisedFields(super.shouldSendSigningKeyList(req));
 
-            result.addProperty("status", "OK");
-
-            result.addProperty("jwtSigningPublicKey",
-                    new Utils.PubPriKey(AccessTokenSigningKey.getInstance(main).getLatestIssuedKey().value).publicKey);
-            result.addProperty("jwtSigningPublicKeyExpiryTime",
-                    AccessTokenSigningKey.getInstance(main).getKeyExpiryTime());
-
-            if (!super.getVersionFromRequest(req).equals("2.7") && !super.getVersionFromRequest(req).equals("2.8")) {
-                List<KeyInfo> keys = AccessTokenSigningKey.getInstance(main).getAllKeys();
-                JsonArray jwtSigningPublicKeyListJSON = Utils.keyListToJson(keys);
-                result.add("jwtSigningPublicKeyList", jwtSigningPublicKeyListJSON);
-            }
-
-            super.sendJsonResponse(200, result, resp);
+            super.sendJsonResponse(200, writer -> {
+                JsonResponseWriter.writeSessionInformationHolder(writer, sessionInfo);
+                writer.name("status").value("OK");
+            }, signingKeyFields, resp);
         } catch (NoSuchAlgorithmException | StorageQueryException | InvalidKeyException | InvalidKeySpecException
                 | StorageTransactionLogicException | SignatureException | IllegalBlockSizeException
                 | BadPaddingException | InvalidAlgorithmParameterException | NoSuchPaddingException e) {
@@ -108,7 +95,7 @@ public class SessionAPI extends WebserverAPI {
         try {
             SessionInfo sessionInfo = Session.getSession(main, sessionHandle);
 
-            JsonObject result = new JsonParser().parse(new Gson().toJson(sessionInfo)).getAsJsonObject();
+            JsonObject result = Utils.getGson().toJsonTree(sessionInfo).getAsJsonObject();
             result.addProperty("status", "OK");
 
             super.sendJsonResponse(200, result, resp);
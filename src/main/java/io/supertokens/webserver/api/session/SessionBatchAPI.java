@@ -0,0 +1,79 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.webserver.api.session;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.session.SessionInfo;
+import io.supertokens.session.Session;
+import io.supertokens.utils.Utils;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+public class SessionBatchAPI extends WebserverAPI {
+
+    private static final long serialVersionUID = 5317925067913364870L;
+
+    public static final int MAX_BATCH_SIZE = 100;
+
+    public SessionBatchAPI(Main main) {
+        super(main, RECIPE_ID.SESSION.toString());
+    }
+
+    @Override
+    public String getPath() {
+        return "/recipe/session/batch";
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        super.assertThatVersionIsAtLeast(req, "2.11");
+        String[] sessionHandles = InputParser.getCommaSeparatedStringArrayQueryParamOrThrowError(req,
+                "sessionHandles", false);
+        assert sessionHandles != null;
+
+        if (sessionHandles.length > MAX_BATCH_SIZE) {
+            throw new ServletException(new BadRequestException(
+                    "Field name 'sessionHandles' cannot contain more than " + MAX_BATCH_SIZE + " elements"));
+        }
+
+        try {
+            SessionInfo[] sessions = Session.getSessions(main, sessionHandles);
+
+            // each session has the same fields as the response of GET /recipe/session, and the sessions that do not
+            // exist are left out
+            JsonArray sessionsJson = new JsonArray();
+            for (SessionInfo session : sessions) {
+                sessionsJson.add(Utils.getGson().toJsonTree(session));
+            }
+            JsonObject result = new JsonObject();
+            result.addProperty("status", "OK");
+            result.add("sessions", sessionsJson);
+            super.sendJsonResponse(200, result, resp);
+
+        } catch (StorageQueryException e) {
+            throw new ServletException(e);
+        }
+    }
+}
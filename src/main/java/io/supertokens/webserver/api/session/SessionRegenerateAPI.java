@@ -16,9 +16,7 @@
 
 package io.supertokens.webserver.api.session;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.supertokens.Main;
 import io.supertokens.exceptions.UnauthorisedException;
 import io.supertokens.output.Logging;
@@ -29,6 +27,7 @@ import io.supertokens.session.Session;
 import io.supertokens.session.info.SessionInformationHolder;
 import io.supertokens.utils.Utils;
 import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.JsonResponseWriter;
 import io.supertokens.webserver.WebserverAPI;
 
 import javax.servlet.ServletException;
@@ -65,10 +64,12 @@ public class SessionRegenerateAPI extends WebserverAPI {
         try {
             SessionInformationHolder sessionInfo = Session.regenerateToken(main, accessToken, userDataInJWT);
 
-            JsonObject result = new JsonParser().parse(new Gson().toJson(sessionInfo)).getAsJsonObject();
-
-            result.addProperty("status", "OK");
-            super.sendJsonResponse(200, result, resp);
+            super.sendJsonResponse(200, writer -> {
+                writer.beginObject();
+                JsonResponseWriter.writeSessionInformationHolder(writer, sessionInfo);
+                writer.name("status").value("OK");
+                writer.endObject();
+            }, resp);
 
         } catch (StorageQueryException | StorageTransactionLogicException | NoSuchAlgorithmException
                 | InvalidKeyException | SignatureException | InvalidKeySpecException e) {
@@ -20,9 +20,13 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import io.supertokens.Main;
+import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.session.Session;
+import io.supertokens.session.SessionHandlePaginationContainer;
+import io.supertokens.session.SessionHandlePaginationToken;
+import io.supertokens.utils.Utils;
 import io.supertokens.webserver.InputParser;
 import io.supertokens.webserver.WebserverAPI;
 
@@ -35,6 +39,9 @@ public class SessionUserAPI extends WebserverAPI {
 
     private static final long serialVersionUID = 3488492313129193443L;
 
+    private static final int MAX_LIMIT = 1000;
+    private static final int DEFAULT_LIMIT = 100;
+
     public SessionUserAPI(Main main) {
         super(main, RECIPE_ID.SESSION.toString());
     }
@@ -49,8 +56,41 @@ public class SessionUserAPI extends WebserverAPI {
         String userId = InputParser.getQueryParamOrThrowError(req, "userId", false);
         assert userId != null;
 
+        /*
+         * Pagination was added in CDI 2.11. Even then, the session handles are only paginated if limit or
+         * paginationToken is given, so that older clients still get all of them.
+         * limit can be null or an integer with maximum value 1000. Default value is 100.
+         * paginationToken can be null or the nextPaginationToken of a previous response.
+         */
+        Integer limit = null;
+        String paginationToken = null;
+        if (super.isVersionAtLeast(req, "2.11")) {
+            limit = InputParser.getIntQueryParamOrThrowError(req, "limit", true);
+            paginationToken = InputParser.getQueryParamOrThrowError(req, "paginationToken", true);
+        }
+        boolean paginate = limit != null || paginationToken != null;
+
+        if (limit != null) {
+            if (limit > MAX_LIMIT) {
+                throw new ServletException(new BadRequestException("max limit allowed is " + MAX_LIMIT));
+            } else if (limit < 1) {
+                throw new ServletException(new BadRequestException("limit must a positive integer with min value 1"));
+            }
+        } else {
+            limit = DEFAULT_LIMIT;
+        }
+
         try {
-            String[] sessionHandles = Session.getAllSessionHandlesForUser(main, userId);
+            String[] sessionHandles;
+            String nextPaginationToken = null;
+            if (paginate) {
+                SessionHandlePaginationContainer page = Session.getSessionHandlesForUser(main, userId, limit,
+                        paginationToken);
+                sessionHandles = page.sessionHandles;
+                nextPaginationToken = page.nextPaginationToken;
+            } else {
+                sessionHandles = Session.getAllSessionHandlesForUser(main, userId);
+            }
 
             JsonObject result = new JsonObject();
             result.addProperty("status", "OK");
@@ -59,8 +99,14 @@ public class SessionUserAPI extends WebserverAPI {
                 arr.add(new JsonPrimitive(s));
             }
             result.add("sessionHandles", arr);
+            if (nextPaginationToken != null) {
+                result.addProperty("nextPaginationToken", nextPaginationToken);
+            }
             super.sendJsonResponse(200, result, resp);
 
+        } catch (SessionHandlePaginationToken.InvalidTokenException e) {
+            Logging.debug(main, Utils.exceptionStacktraceToString(e));
+            throw new ServletException(new BadRequestException("invalid pagination token"));
         } catch (StorageQueryException e) {
             throw new ServletException(e);
         }
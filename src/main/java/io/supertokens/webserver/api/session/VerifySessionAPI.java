@@ -16,10 +16,7 @@
 
 package io.supertokens.webserver.api.session;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.supertokens.Main;
 import io.supertokens.exceptions.TryRefreshTokenException;
 import io.supertokens.exceptions.UnauthorisedException;
@@ -29,17 +26,16 @@ import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.session.Session;
 import io.supertokens.session.accessToken.AccessTokenSigningKey;
-import io.supertokens.session.accessToken.AccessTokenSigningKey.KeyInfo;
 import io.supertokens.session.info.SessionInformationHolder;
 import io.supertokens.utils.Utils;
 import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.JsonResponseWriter;
 import io.supertokens.webserver.WebserverAPI;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.List;
 
 public class VerifySessionAPI extends WebserverAPI {
 
@@ -69,21 +65,13 @@ public class VerifySessionAPI extends WebserverAPI {
             SessionInformationHolder sessionInfo = Session.getSession(main, accessToken, antiCsrfToken, enableAntiCsrf,
                     doAntiCsrfCheck);
 
-            JsonObject result = new JsonParser().parse(new Gson().toJson(sessionInfo)).getAsJsonObject();
-            result.addProperty("status", "OK");
+            String signingKeyFields = AccessTokenSigningKey.getInstance(main).getSigningKeysFragment()
+                    .getSerialisedFields(super.shouldSendSigningKeyList(req));
 
-            result.addProperty("jwtSigningPublicKey",
-                    new Utils.PubPriKey(AccessTokenSigningKey.getInstance(main).getLatestIssuedKey().value).publicKey);
-            result.addProperty("jwtSigningPublicKeyExpiryTime",
-                    AccessTokenSigningKey.getInstance(main).getKeyExpiryTime());
-
-            if (!super.getVersionFromRequest(req).equals("2.7") && !super.getVersionFromRequest(req).equals("2.8")) {
-                List<KeyInfo> keys = AccessTokenSigningKey.getInstance(main).getAllKeys();
-                JsonArray jwtSigningPublicKeyListJSON = Utils.keyListToJson(keys);
-                result.add("jwtSigningPublicKeyList", jwtSigningPublicKeyListJSON);
-            }
-
-            super.sendJsonResponse(200, result, resp);
+            super.sendJsonResponse(200, writer -> {
+                JsonResponseWriter.writeSessionInformationHolder(writer, sessionInfo);
+                writer.name("status").value("OK");
+            }, signingKeyFields, resp);
         } catch (StorageQueryException | StorageTransactionLogicException e) {
             throw new ServletException(e);
         } catch (UnauthorisedException e) {
@@ -95,23 +83,13 @@ public class VerifySessionAPI extends WebserverAPI {
         } catch (TryRefreshTokenException e) {
             Logging.debug(main, Utils.exceptionStacktraceToString(e));
             try {
-                JsonObject reply = new JsonObject();
-                reply.addProperty("status", "TRY_REFRESH_TOKEN");
-
-                reply.addProperty("jwtSigningPublicKey", new Utils.PubPriKey(
-                        AccessTokenSigningKey.getInstance(main).getLatestIssuedKey().value).publicKey);
-                reply.addProperty("jwtSigningPublicKeyExpiryTime",
-                        AccessTokenSigningKey.getInstance(main).getKeyExpiryTime());
-
-                if (!super.getVersionFromRequest(req).equals("2.7")
-                        && !super.getVersionFromRequest(req).equals("2.8")) {
-                    List<KeyInfo> keys = AccessTokenSigningKey.getInstance(main).getAllKeys();
-                    JsonArray jwtSigningPublicKeyListJSON = Utils.keyListToJson(keys);
-                    reply.add("jwtSigningPublicKeyList", jwtSigningPublicKeyListJSON);
-                }
+                String signingKeyFields = AccessTokenSigningKey.getInstance(main).getSigningKeysFragment()
+                        .getSerialisedFields(super.shouldSendSigningKeyList(req));
 
-                reply.addProperty("message", e.getMessage());
-                super.sendJsonResponse(200, reply, resp);
+                super.sendJsonResponse(200, writer -> {
+                    writer.name("status").value("TRY_REFRESH_TOKEN");
+                    writer.name("message").value(e.getMessage());
+                }, signingKeyFields, resp);
             } catch (StorageQueryException | StorageTransactionLogicException e2) {
                 throw new ServletException(e2);
             }
@@ -0,0 +1,203 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.session;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.exceptions.TryRefreshTokenException;
+import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.output.Logging;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.session.Session;
+import io.supertokens.session.accessToken.AccessTokenSigningKey;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.utils.Utils;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.JsonResponseWriter;
+import io.supertokens.webserver.WebserverAPI;
+
+import javax.annotation.Nullable;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VerifySessionBatchAPI extends WebserverAPI {
+
+    private static final long serialVersionUID = 2854281385725458541L;
+
+    public static final int MAX_BATCH_SIZE = 100;
+    public static final String INTERNAL_ERROR_STATUS = "INTERNAL_ERROR";
+
+    // shared by all batch requests, so that a burst of them cannot start an unbounded number of verifications at
+    // once.
+    private transient ExecutorService executor;
+
+    public VerifySessionBatchAPI(Main main) {
+        super(main, RECIPE_ID.SESSION.toString());
+    }
+
+    @Override
+    public String getPath() {
+        return "/recipe/session/verify/batch";
+    }
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        this.executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "session-verify-batch-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+        super.destroy();
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        super.assertThatVersionIsAtLeast(req, "2.11");
+        JsonObject input = InputParser.parseJsonObjectOrThrowError(req);
+        JsonArray sessions = InputParser.parseArrayOrThrowError(input, "sessions", false);
+        assert sessions != null;
+        Boolean enableAntiCsrf = InputParser.parseBooleanOrThrowError(input, "enableAntiCsrf", false);
+        assert enableAntiCsrf != null;
+
+        if (sessions.size() > MAX_BATCH_SIZE) {
+            throw new ServletException(new BadRequestException(
+                    "Field name 'sessions' cannot contain more than " + MAX_BATCH_SIZE + " elements"));
+        }
+
+        // we parse all the input before starting any verification, so that a bad element fails the whole request
+        List<BatchItem> items = new ArrayList<>();
+        for (JsonElement session : sessions) {
+            if (!session.isJsonObject()) {
+                throw new ServletException(
+                        new BadRequestException("Field name 'sessions' is invalid in JSON input"));
+            }
+            JsonObject sessionInput = session.getAsJsonObject();
+            String accessToken = InputParser.parseStringOrThrowError(sessionInput, "accessToken", false);
+            assert accessToken != null;
+            String antiCsrfToken = InputParser.parseStringOrThrowError(sessionInput, "antiCsrfToken", true);
+            Boolean doAntiCsrfCheck = InputParser.parseBooleanOrThrowError(sessionInput, "doAntiCsrfCheck", false);
+            assert doAntiCsrfCheck != null;
+            items.add(new BatchItem(accessToken, antiCsrfToken, doAntiCsrfCheck));
+        }
+
+        List<Future<BatchResult>> futures = new ArrayList<>();
+        for (BatchItem item : items) {
+            futures.add(this.executor.submit(() -> verify(item, enableAntiCsrf)));
+        }
+
+        try {
+            List<BatchResult> results = new ArrayList<>();
+            for (Future<BatchResult> future : futures) {
+                results.add(future.get());
+            }
+
+            // the keys are the same for all sessions, so we only send them once
+            String signingKeyFields = AccessTokenSigningKey.getInstance(main).getSigningKeysFragment()
+                    .getSerialisedFields(super.shouldSendSigningKeyList(req));
+
+            super.sendJsonResponse(200, writer -> {
+                writer.name("status").value("OK");
+                writer.name("sessions");
+                writer.beginArray();
+                for (BatchResult result : results) {
+                    writer.beginObject();
+                    if (result.sessionInfo != null) {
+                        JsonResponseWriter.writeSessionInformationHolder(writer, result.sessionInfo);
+                    }
+                    writer.name("status").value(result.status);
+                    writer.name("message").value(result.message);
+                    writer.endObject();
+                }
+                writer.endArray();
+            }, signingKeyFields, resp);
+        } catch (StorageQueryException | StorageTransactionLogicException | ExecutionException e) {
+            throw new ServletException(e);
+        } catch (InterruptedException e) {
+            for (Future<BatchResult> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new ServletException(e);
+        }
+    }
+
+    // an error while verifying one session only fails that session, not the whole batch
+    private BatchResult verify(BatchItem item, boolean enableAntiCsrf) {
+        try {
+            SessionInformationHolder sessionInfo = Session.getSession(main, item.accessToken, item.antiCsrfToken,
+                    enableAntiCsrf, item.doAntiCsrfCheck);
+            return new BatchResult(sessionInfo, "OK", null);
+        } catch (UnauthorisedException e) {
+            Logging.debug(main, Utils.exceptionStacktraceToString(e));
+            return new BatchResult(null, "UNAUTHORISED", e.getMessage());
+        } catch (TryRefreshTokenException e) {
+            Logging.debug(main, Utils.exceptionStacktraceToString(e));
+            return new BatchResult(null, "TRY_REFRESH_TOKEN", e.getMessage());
+        } catch (StorageQueryException | StorageTransactionLogicException | RuntimeException e) {
+            Logging.error(main, "Error while verifying a session of a batch", Main.isTesting, e);
+            return new BatchResult(null, INTERNAL_ERROR_STATUS, "Internal Error");
+        }
+    }
+
+    private static class BatchItem {
+        final String accessToken;
+        final String antiCsrfToken;
+        final boolean doAntiCsrfCheck;
+
+        BatchItem(String accessToken, String antiCsrfToken, boolean doAntiCsrfCheck) {
+            this.accessToken = accessToken;
+            this.antiCsrfToken = antiCsrfToken;
+            this.doAntiCsrfCheck = doAntiCsrfCheck;
+        }
+    }
+
+    private static class BatchResult {
+        @Nullable
+        final SessionInformationHolder sessionInfo;
+        final String status;
+        @Nullable
+        final String message;
+
+        BatchResult(@Nullable SessionInformationHolder sessionInfo, String status, @Nullable String message) {
+            this.sessionInfo = sessionInfo;
+            this.status = status;
+            this.message = message;
+        }
+    }
+}
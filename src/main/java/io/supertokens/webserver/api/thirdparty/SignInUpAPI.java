@@ -16,9 +16,7 @@
 
 package io.supertokens.webserver.api.thirdparty;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.supertokens.Main;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
@@ -71,7 +69,7 @@ public class SignInUpAPI extends WebserverAPI {
                 JsonObject result = new JsonObject();
                 result.addProperty("status", "OK");
                 result.addProperty("createdNewUser", response.createdNewUser);
-                JsonObject userJson = new JsonParser().parse(new Gson().toJson(response.user)).getAsJsonObject();
+                JsonObject userJson = Utils.getGson().toJsonTree(response.user).getAsJsonObject();
                 result.add("user", userJson);
                 super.sendJsonResponse(200, result, resp);
 
@@ -101,7 +99,7 @@ public class SignInUpAPI extends WebserverAPI {
                 JsonObject result = new JsonObject();
                 result.addProperty("status", "OK");
                 result.addProperty("createdNewUser", response.createdNewUser);
-                JsonObject userJson = new JsonParser().parse(new Gson().toJson(response.user)).getAsJsonObject();
+                JsonObject userJson = Utils.getGson().toJsonTree(response.user).getAsJsonObject();
                 result.add("user", userJson);
                 super.sendJsonResponse(200, result, resp);
 
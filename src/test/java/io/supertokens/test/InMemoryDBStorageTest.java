@@ -30,7 +30,10 @@ import org.junit.Test;
 import org.junit.rules.TestRule;
 
 import java.io.IOException;
+import java.sql.SQLTransactionRollbackException;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -301,4 +304,95 @@ public class InMemoryDBStorageTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void lockWaitTimeoutIsRetriedAsDeadlock() throws InterruptedException {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SQLStorage sqlStorage = (SQLStorage) StorageLayer.getStorage(process.getProcess());
+
+        // both transactions hold one key and then wait for the other's key
+        CountDownLatch bothHaveLocked = new CountDownLatch(2);
+        AtomicInteger numberOfAttempts = new AtomicInteger(0);
+
+        class LockInOrder implements Runnable {
+            private final String first;
+            private final String second;
+            boolean success = false;
+
+            LockInOrder(String first, String second) {
+                this.first = first;
+                this.second = second;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    sqlStorage.startTransaction(con -> {
+                        numberOfAttempts.incrementAndGet();
+                        sqlStorage.getKeyValue_Transaction(con, first);
+                        bothHaveLocked.countDown();
+                        try {
+                            bothHaveLocked.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                        sqlStorage.getKeyValue_Transaction(con, second);
+                        sqlStorage.commitTransaction(con);
+                        return null;
+                    });
+                    success = true;
+                } catch (Exception ignored) {
+                }
+            }
+        }
+
+        LockInOrder r1 = new LockInOrder("Key1", "Key2");
+        LockInOrder r2 = new LockInOrder("Key2", "Key1");
+        Thread t1 = new Thread(r1);
+        Thread t2 = new Thread(r2);
+        t1.start();
+        t2.start();
+        t1.join();
+        t2.join();
+
+        assertTrue(r1.success && r2.success);
+        assertTrue(numberOfAttempts.get() >= 3);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.DEADLOCK_FOUND));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void rollbackFromTransactionLogicIsRetried()
+            throws InterruptedException, StorageQueryException, StorageTransactionLogicException {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SQLStorage sqlStorage = (SQLStorage) StorageLayer.getStorage(process.getProcess());
+
+        // like the queries that run their own statements in a transaction, and wrap a failed one
+        AtomicInteger numberOfAttempts = new AtomicInteger(0);
+        String result = sqlStorage.startTransaction(con -> {
+            if (numberOfAttempts.incrementAndGet() == 1) {
+                throw new StorageQueryException(new SQLTransactionRollbackException("rolled back"));
+            }
+            sqlStorage.commitTransaction(con);
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(2, numberOfAttempts.get());
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.DEADLOCK_FOUND));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
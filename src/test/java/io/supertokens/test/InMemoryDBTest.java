@@ -24,6 +24,8 @@ import io.supertokens.ProcessState;
 import io.supertokens.exceptions.TokenTheftDetectedException;
 import io.supertokens.exceptions.TryRefreshTokenException;
 import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.inmemorydb.ConnectionPool;
+import io.supertokens.inmemorydb.Start;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.session.Session;
@@ -45,6 +47,12 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.*;
@@ -747,4 +755,178 @@ public class InMemoryDBTest {
         assertFalse(process.getProcess().isForceInMemoryDB());
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
     }
+
+    @Test
+    public void connectionsAreReusedAndBoundedByPoolSize() throws Exception {
+        String[] args = { "../" };
+        Utils.setValueInConfig("sqlite_connection_pool_size", "2");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        Connection first = ConnectionPool.getConnection(start);
+        first.close();
+        // closing twice must not give back the connection twice
+        first.close();
+        assertTrue(first.isClosed());
+
+        List<Connection> borrowed = new ArrayList<>();
+        borrowed.add(ConnectionPool.getConnection(start));
+        borrowed.add(ConnectionPool.getConnection(start));
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(500);
+                borrowed.get(0).close();
+            } catch (InterruptedException | SQLException ignored) {
+            }
+        });
+        releaser.start();
+
+        // the pool is exhausted, so this waits until the releaser gives a connection back
+        long before = ConnectionPool.getBorrowWaitMetrics(start).numberOfBorrows;
+        Connection third = ConnectionPool.getConnection(start);
+        releaser.join();
+        ConnectionPool.BorrowWaitMetrics metrics = ConnectionPool.getBorrowWaitMetrics(start);
+        assertEquals(metrics.numberOfBorrows, before + 1);
+        assertTrue(metrics.maxWaitTimeNanos >= 400_000_000L);
+
+        third.close();
+        borrowed.get(1).close();
+
+        // the data is still visible via the reused connections
+        assertEquals(StorageLayer.getSessionStorage(process.getProcess()).getNumberOfSessions(), 0);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void invalidConnectionPoolSizeFailsToStart() throws Exception {
+        String[] args = { "../" };
+        Utils.setValueInConfig("sqlite_connection_pool_size", "0");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals(e.exception.getMessage(), "'sqlite_connection_pool_size' must be >= 1");
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void preparedStatementsAreReusedOnTheSameConnection() throws Exception {
+        String[] args = { "../" };
+        Utils.setValueInConfig("sqlite_connection_pool_size", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        String query = "SELECT ? as value";
+
+        PreparedStatement first;
+        try (Connection con = ConnectionPool.getConnection(start); PreparedStatement pst = con.prepareStatement(query)) {
+            first = pst;
+            pst.setString(1, "a");
+            ResultSet result = pst.executeQuery();
+            assertTrue(result.next());
+            assertEquals(result.getString("value"), "a");
+
+            // the same query is already in use on this connection, so this gets a separate statement
+            try (PreparedStatement nested = con.prepareStatement(query)) {
+                assertNotSame(nested, pst);
+            }
+        }
+        assertTrue(first.isClosed());
+
+        try (Connection con = ConnectionPool.getConnection(start); PreparedStatement pst = con.prepareStatement(query)) {
+            assertSame(pst, first);
+            assertFalse(pst.isClosed());
+            pst.setString(1, "b");
+            ResultSet result = pst.executeQuery();
+            assertTrue(result.next());
+            assertEquals(result.getString("value"), "b");
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void signingKeyChangeWithOneConnectionInThePool() throws Exception {
+        String[] args = { "../" };
+        Utils.setValueInConfig("sqlite_connection_pool_size", "1");
+        Utils.setValueInConfig("access_token_signing_key_update_interval", "0.00027"); // 1 second
+        Utils.setValueInConfig("access_token_validity", "1"); // 1 second
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Main main = process.getProcess();
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(main, "userId", userDataInJWT,
+                new JsonObject(), false);
+        assert sessionInfo.refreshToken != null;
+
+        Thread.sleep(1500);
+
+        // the signing key has to be changed while creating the new tokens. If that was done while the refresh
+        // transaction still held the only connection, it would wait for a connection until it timed out.
+        long start = System.currentTimeMillis();
+        SessionInformationHolder refreshedSession = Session.refreshSession(main, sessionInfo.refreshToken.token,
+                sessionInfo.antiCsrfToken, false);
+        assert refreshedSession.accessToken != null;
+        assertTrue(System.currentTimeMillis() - start < 5000);
+
+        SessionInformationHolder newSession = Session.getSession(main, refreshedSession.accessToken.token,
+                refreshedSession.antiCsrfToken, false, true);
+        assertEquals(newSession.session.handle, sessionInfo.session.handle);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void sessionQueriesByUserIdAndExpiryUseIndexes() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        assertTrue(getQueryPlan(start, "SELECT session_handle FROM session_info WHERE user_id = 'userId'")
+                .contains("USING INDEX session_info_user_id_index"));
+        assertTrue(getQueryPlan(start, "DELETE FROM session_info WHERE user_id = 'userId'")
+                .contains("USING INDEX session_info_user_id_index"));
+        assertTrue(getQueryPlan(start, "DELETE FROM session_info WHERE expires_at <= 0")
+                .contains("USING INDEX session_info_expiry_index"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static String getQueryPlan(Start start, String query) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Connection con = ConnectionPool.getConnection(start);
+                PreparedStatement pst = con.prepareStatement("EXPLAIN QUERY PLAN " + query)) {
+            ResultSet result = pst.executeQuery();
+            while (result.next()) {
+                plan.append(result.getString("detail")).append("\n");
+            }
+        }
+        return plan.toString();
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import io.supertokens.session.info.SessionInfo;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.session.info.TokenInfo;
+import io.supertokens.webserver.JsonResponseWriter;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonResponseWriterTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void sessionInformationHolderIsWrittenLikeGsonWouldSerialiseIt() throws Exception {
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("html", "<a href='x'>&</a>");
+        userDataInJWT.addProperty("number", 1.5);
+        userDataInJWT.add("null", JsonNull.INSTANCE);
+        JsonObject nested = new JsonObject();
+        nested.addProperty("unicode", "é ");
+        userDataInJWT.add("nested", nested);
+
+        SessionInformationHolder[] holders = {
+                new SessionInformationHolder(new SessionInfo("handle", "userId", userDataInJWT),
+                        new TokenInfo("accessToken", 10, 5), new TokenInfo("refreshToken", 20, 5),
+                        new TokenInfo("idRefreshToken", 30, 5), "antiCsrf"),
+                new SessionInformationHolder(new SessionInfo("handle", "userId", new JsonObject()), null, null, null,
+                        null) };
+
+        for (SessionInformationHolder holder : holders) {
+            JsonObject expected = new JsonParser().parse(new Gson().toJson(holder)).getAsJsonObject();
+            expected.addProperty("status", "OK");
+
+            StringWriter out = new StringWriter();
+            JsonWriter writer = new JsonWriter(out);
+            writer.setSerializeNulls(false);
+            writer.beginObject();
+            JsonResponseWriter.writeSessionInformationHolder(writer, holder);
+            writer.name("status").value("OK");
+            writer.endObject();
+            writer.flush();
+
+            assertEquals(expected.toString(), out.toString());
+        }
+    }
+}
@@ -22,6 +22,16 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import javax.crypto.AEADBadTagException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
 public class UtilsTest {
     @Rule
     public TestRule watchman = Utils.getOnFailure();
@@ -41,4 +51,69 @@ public class UtilsTest {
         assert (io.supertokens.utils.Utils.convertFromBase64(io.supertokens.utils.Utils.convertToBase64("łukasz 馬 / 马"))
                 .equals("łukasz 馬 / 马"));
     }
+
+    @Test
+    public void reusedCryptoEnginesGiveSameResults() throws Exception {
+        String hash = io.supertokens.utils.Utils.hashSHA256("value");
+        assertEquals(hash, io.supertokens.utils.Utils.hashSHA256("value"));
+        assertEquals(io.supertokens.utils.Utils.hashSHA256(hash),
+                io.supertokens.utils.Utils.hashSHA256(io.supertokens.utils.Utils.hashSHA256("value")));
+
+        String masterKey = io.supertokens.utils.Utils.generateNewSigningKey();
+        String encrypted = io.supertokens.utils.Utils.encrypt("plaintext", masterKey);
+
+        // a failed decryption should not affect the next use of the cipher on this thread
+        try {
+            io.supertokens.utils.Utils.decrypt(encrypted, io.supertokens.utils.Utils.generateNewSigningKey());
+            fail();
+        } catch (AEADBadTagException ignored) {
+        }
+        assertEquals("plaintext", io.supertokens.utils.Utils.decrypt(encrypted, masterKey));
+        assertEquals("plaintext2", io.supertokens.utils.Utils
+                .decrypt(io.supertokens.utils.Utils.encrypt("plaintext2", masterKey), masterKey));
+
+        io.supertokens.utils.Utils.PubPriKey rsa = io.supertokens.utils.Utils.generateNewPubPriKey();
+        String signature = io.supertokens.utils.Utils.signWithPrivateKey("content", rsa.privateKey);
+        assertTrue(io.supertokens.utils.Utils.verifyWithPublicKey("content", signature, rsa.publicKey));
+        assertFalse(io.supertokens.utils.Utils.verifyWithPublicKey("content2", signature, rsa.publicKey));
+        assertTrue(io.supertokens.utils.Utils.verifyWithPublicKey("content", signature, rsa.publicKey));
+    }
+
+    @Test
+    public void cryptoEnginesAreNotSharedBetweenThreads() throws Exception {
+        String expected = io.supertokens.utils.Utils.hashSHA256("value");
+        ExecutorService es = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(es.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    if (!expected.equals(io.supertokens.utils.Utils.hashSHA256("value"))) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+        es.shutdown();
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+    }
+
+    @Test
+    public void hkdfMatchesRFC5869TestVector() throws Exception {
+        // Test case 1 from https://datatracker.ietf.org/doc/html/rfc5869#appendix-A.1
+        byte[] ikm = new byte[22];
+        Arrays.fill(ikm, (byte) 0x0b);
+        byte[] salt = new byte[13];
+        for (int i = 0; i < salt.length; i++) {
+            salt[i] = (byte) i;
+        }
+        byte[] info = new byte[10];
+        for (int i = 0; i < info.length; i++) {
+            info[i] = (byte) (0xf0 + i);
+        }
+        assertEquals("3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865",
+                io.supertokens.utils.Utils.bytesToString(io.supertokens.utils.Utils.hkdfSHA256(ikm, salt, info, 42)));
+    }
 }
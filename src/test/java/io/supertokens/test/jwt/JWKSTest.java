@@ -34,14 +34,24 @@ import org.junit.Test;
 import org.junit.rules.TestRule;
 
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
 import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
 import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 import java.util.List;
 
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 public class JWKSTest {
     @Rule
@@ -58,14 +68,39 @@ public class JWKSTest {
     }
 
     /**
-     * Test that after startup there is one JWK for each supported algorithm type in storage
+     * Test that after startup there is only the RS256 JWK in storage
      */
     @Test
-    public void testThatThereAreTheSameNumberOfJWKSAsSupportedAlgorithmsBeforeJWTCreation() throws Exception {
+    public void testThatThereIsOnlyTheRS256JWKBeforeJWTCreation() throws Exception {
         String[] args = { "../" };
         TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
 
+        List<JsonObject> keysFromStorage = JWTSigningFunctions.getJWKS(process.getProcess());
+        assert keysFromStorage.size() == 1;
+        assertEquals(keysFromStorage.get(0).get("alg").getAsString(), "RS256");
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    /**
+     * Test that the JWK of the other algorithms is created when the first JWT is signed with them, and added to the
+     * JWKS
+     */
+    @Test
+    public void testThatJWKIsCreatedOnFirstUseOfAlgorithm() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (JWTSigningKey.SupportedAlgorithms algorithm : JWTSigningKey.SupportedAlgorithms.values()) {
+            String jwt = JWTSigningFunctions.createJWTToken(process.getProcess(), algorithm.name(), new JsonObject(),
+                    "http://localhost", 3600);
+            assertNotNull(getJWKWithId(JWTSigningFunctions.getJWKS(process.getProcess()),
+                    JWT.decode(jwt).getKeyId()));
+        }
+
         List<JsonObject> keysFromStorage = JWTSigningFunctions.getJWKS(process.getProcess());
         assert keysFromStorage.size() == JWTSigningKey.SupportedAlgorithms.values().length;
 
@@ -84,7 +119,7 @@ public class JWKSTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
 
         List<JsonObject> keysFromStorageBeforeJWTCreation = JWTSigningFunctions.getJWKS(process.getProcess());
-        assert keysFromStorageBeforeJWTCreation.size() == JWTSigningKey.SupportedAlgorithms.values().length;
+        assert keysFromStorageBeforeJWTCreation.size() == 1;
         int numberOfKeysBeforeJWTCreation = keysFromStorageBeforeJWTCreation.size();
 
         String algorithm = "RS256";
@@ -157,10 +192,11 @@ public class JWKSTest {
 
         List<JsonObject> keysFromStorage = JWTSigningFunctions.getJWKS(process.getProcess());
 
-        // TODO: In the future when more algorithm types (EC etc) are supported this part of the test will need to be
-        // updated
         for (int i = 0; i < keysFromStorage.size(); i++) {
             JsonObject key = keysFromStorage.get(i);
+            if (!key.get("kty").getAsString().equals("RSA")) {
+                continue;
+            }
             String modulusString = key.get("n").getAsString();
             String exponentString = key.get("e").getAsString();
 
@@ -252,6 +288,9 @@ public class JWKSTest {
 
         for (int i = 0; i < keysFromStorage.size(); i++) {
             JsonObject key = keysFromStorage.get(i);
+            if (!key.get("kty").getAsString().equals("RSA")) {
+                continue;
+            }
             byte[] modulusBytes = Base64.getUrlDecoder().decode(key.get("n").getAsString());
 
             // The modulus is always positive and should not contain the sign byte (0)
@@ -266,4 +305,86 @@ public class JWKSTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    /**
+     * Test that the JWK of an ES256 key can be used to verify the signature of a JWT signed with it
+     */
+    @Test
+    public void testThatECJWKCanBeUsedForJWTVerification() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        String jwt = JWTSigningFunctions.createJWTToken(process.getProcess(), "ES256", new JsonObject(),
+                "http://localhost", 3600);
+        DecodedJWT decodedJWT = JWT.decode(jwt);
+        assertEquals(decodedJWT.getAlgorithm(), "ES256");
+
+        JsonObject key = getJWKWithId(JWTSigningFunctions.getJWKS(process.getProcess()), decodedJWT.getKeyId());
+        assertEquals(key.get("kty").getAsString(), "EC");
+        assertEquals(key.get("crv").getAsString(), "P-256");
+        assertEquals(key.get("alg").getAsString(), "ES256");
+        byte[] x = Base64.getUrlDecoder().decode(key.get("x").getAsString());
+        byte[] y = Base64.getUrlDecoder().decode(key.get("y").getAsString());
+        assertEquals(x.length, 32);
+        assertEquals(y.length, 32);
+
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        ECPublicKey publicKey = (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(
+                new ECPoint(new BigInteger(1, x), new BigInteger(1, y)),
+                parameters.getParameterSpec(ECParameterSpec.class)));
+
+        JWT.require(Algorithm.ECDSA256(publicKey, null)).build().verify(jwt);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    /**
+     * Test that the JWK of an EdDSA key can be used to verify the signature of a JWT signed with it
+     */
+    @Test
+    public void testThatEdDSAJWKCanBeUsedForJWTVerification() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        String jwt = JWTSigningFunctions.createJWTToken(process.getProcess(), "EDDSA", new JsonObject(),
+                "http://localhost", 3600);
+        DecodedJWT decodedJWT = JWT.decode(jwt);
+        assertEquals(decodedJWT.getAlgorithm(), "EdDSA");
+
+        JsonObject key = getJWKWithId(JWTSigningFunctions.getJWKS(process.getProcess()), decodedJWT.getKeyId());
+        assertEquals(key.get("kty").getAsString(), "OKP");
+        assertEquals(key.get("crv").getAsString(), "Ed25519");
+        assertEquals(key.get("alg").getAsString(), "EdDSA");
+        byte[] x = Base64.getUrlDecoder().decode(key.get("x").getAsString());
+        assertEquals(x.length, 32);
+
+        // the X.509 encoding of an Ed25519 public key is a fixed prefix followed by the key
+        byte[] prefix = { 0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00 };
+        byte[] encoded = new byte[prefix.length + x.length];
+        System.arraycopy(prefix, 0, encoded, 0, prefix.length);
+        System.arraycopy(x, 0, encoded, prefix.length, x.length);
+        PublicKey publicKey = KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(encoded));
+
+        Signature signature = Signature.getInstance("Ed25519");
+        signature.initVerify(publicKey);
+        signature.update((decodedJWT.getHeader() + "." + decodedJWT.getPayload()).getBytes(StandardCharsets.UTF_8));
+        assertTrue(signature.verify(Base64.getUrlDecoder().decode(decodedJWT.getSignature())));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static JsonObject getJWKWithId(List<JsonObject> keys, String keyId) {
+        for (JsonObject key : keys) {
+            if (key.get("kid").getAsString().equals(keyId)) {
+                return key;
+            }
+        }
+        fail();
+        return null;
+    }
 }
@@ -22,6 +22,7 @@ import com.auth0.jwt.interfaces.DecodedJWT;
 import com.google.gson.JsonObject;
 import io.supertokens.ProcessState;
 import io.supertokens.jwt.JWTSigningFunctions;
+import io.supertokens.jwt.JWTSigningKey;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
@@ -31,8 +32,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.fail;
+import static org.junit.Assert.*;
 
 public class JWTCreateTest {
     @Rule
@@ -251,4 +251,30 @@ public class JWTCreateTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    /**
+     * Test that the signing key and its auth0 Algorithm are only loaded once, and used for all JWTs
+     */
+    @Test
+    public void testThatSigningKeyIsLoadedOnce() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JWTSigningKey.KeyForSigning keyForSigning = JWTSigningKey.getInstance(process.getProcess())
+                .getKeyForSigning(JWTSigningKey.SupportedAlgorithms.RS256);
+
+        String jwt1 = JWTSigningFunctions.createJWTToken(process.getProcess(), "RS256", new JsonObject(),
+                "http://localhost", 3600);
+        String jwt2 = JWTSigningFunctions.createJWTToken(process.getProcess(), "RS256", new JsonObject(),
+                "http://localhost", 3600);
+
+        assertSame(keyForSigning, JWTSigningKey.getInstance(process.getProcess())
+                .getKeyForSigning(JWTSigningKey.SupportedAlgorithms.RS256));
+        assertEquals(keyForSigning.keyInfo.keyId, JWT.decode(jwt1).getKeyId());
+        assertEquals(keyForSigning.keyInfo.keyId, JWT.decode(jwt2).getKeyId());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
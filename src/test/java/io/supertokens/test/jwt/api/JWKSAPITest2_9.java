@@ -23,7 +23,9 @@ import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.RSAKeyProvider;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import io.supertokens.ProcessState;
+import io.supertokens.jwt.JWTSigningKey;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
 import io.supertokens.test.httpRequest.HttpRequestForTesting;
@@ -34,13 +36,16 @@ import org.junit.Test;
 import org.junit.rules.TestRule;
 
 import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.security.KeyFactory;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.RSAPublicKeySpec;
 import java.util.Base64;
+import java.util.Scanner;
 
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 public class JWKSAPITest2_9 {
     @Rule
@@ -208,4 +213,57 @@ public class JWKSAPITest2_9 {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testThatETagChangesOnlyWhenAKeyIsAdded() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        HttpURLConnection con = sendJWKSRequest(null);
+        assertEquals(200, con.getResponseCode());
+        String eTag = con.getHeaderField("ETag");
+        String body;
+        try (Scanner scanner = new Scanner(con.getInputStream(), "UTF-8")) {
+            body = scanner.useDelimiter("\\A").next();
+        }
+        assertEquals("OK", new JsonParser().parse(body).getAsJsonObject().get("status").getAsString());
+        long maxAge = Long.parseLong(con.getHeaderField("Cache-Control").substring("max-age=".length()));
+        assertTrue(maxAge > 0 && maxAge <= JWTSigningKey.JWKS_REFRESH_INTERVAL / 1000);
+        con.disconnect();
+
+        con = sendJWKSRequest(eTag);
+        assertEquals(304, con.getResponseCode());
+        con.disconnect();
+
+        // creating a JWT for an algorithm that already has a key does not change the keys
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("algorithm", "rs256");
+        requestBody.addProperty("jwksDomain", "http://localhost");
+        requestBody.add("payload", new JsonObject());
+        requestBody.addProperty("validity", 3600);
+        HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "", "http://localhost:3567/recipe/jwt",
+                requestBody, 1000, 1000, null, Utils.getCdiVersion2_9ForTests(), "jwt");
+
+        con = sendJWKSRequest(eTag);
+        assertEquals(304, con.getResponseCode());
+        con.disconnect();
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static HttpURLConnection sendJWKSRequest(String ifNoneMatch) throws Exception {
+        HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:3567/recipe/jwt/jwks")
+                .openConnection();
+        con.setConnectTimeout(1000);
+        con.setReadTimeout(1000);
+        con.setRequestProperty("cdi-version", Utils.getCdiVersion2_9ForTests());
+        con.setRequestProperty("rId", "jwt");
+        if (ifNoneMatch != null) {
+            con.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        return con;
+    }
 }
@@ -0,0 +1,219 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.jwt.api;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.supertokens.ProcessState;
+import io.supertokens.jwt.JWTSigningKey;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.webserver.api.jwt.JWTSigningBatchAPI;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class JWTSigningBatchAPITest2_11 {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void createMultipleJWTsInOneRequest() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JsonArray payloads = new JsonArray();
+        for (int i = 0; i < 20; i++) {
+            JsonObject payload = new JsonObject();
+            payload.addProperty("index", i);
+            payloads.add(payload);
+        }
+
+        JsonObject request = new JsonObject();
+        request.addProperty("algorithm", "rs256");
+        request.addProperty("jwksDomain", "http://localhost");
+        request.add("payloads", payloads);
+        request.addProperty("validity", 3600);
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/jwt/batch", request, 1000, 1000, null,
+                Utils.getCdiVersion2_11ForTests(), "jwt");
+
+        assertEquals(response.get("status").getAsString(), "OK");
+        assertEquals(response.entrySet().size(), 2);
+
+        String keyId = JWTSigningKey.getInstance(process.getProcess())
+                .getKeyForSigning(JWTSigningKey.SupportedAlgorithms.RS256).keyInfo.keyId;
+
+        // results are in the same order as the input
+        JsonArray jwts = response.get("jwts").getAsJsonArray();
+        assertEquals(jwts.size(), 20);
+        for (int i = 0; i < 20; i++) {
+            JsonObject result = jwts.get(i).getAsJsonObject();
+            assertEquals(result.get("status").getAsString(), "OK");
+            DecodedJWT decodedJWT = JWT.decode(result.get("jwt").getAsString());
+            assertEquals(decodedJWT.getClaim("index").asInt().intValue(), i);
+            assertEquals(decodedJWT.getIssuer(), "http://localhost");
+            assertEquals(decodedJWT.getKeyId(), keyId);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void unsupportedAlgorithm() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JsonArray payloads = new JsonArray();
+        payloads.add(new JsonObject());
+
+        JsonObject request = new JsonObject();
+        request.addProperty("algorithm", "HS256");
+        request.addProperty("jwksDomain", "http://localhost");
+        request.add("payloads", payloads);
+        request.addProperty("validity", 3600);
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/jwt/batch", request, 1000, 1000, null,
+                Utils.getCdiVersion2_11ForTests(), "jwt");
+
+        assertEquals(response.get("status").getAsString(), "UNSUPPORTED_ALGORITHM_ERROR");
+        assertEquals(response.entrySet().size(), 1);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void notAvailableWithOlderCdiVersions() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JsonArray payloads = new JsonArray();
+        payloads.add(new JsonObject());
+
+        JsonObject request = new JsonObject();
+        request.addProperty("algorithm", "rs256");
+        request.addProperty("jwksDomain", "http://localhost");
+        request.add("payloads", payloads);
+        request.addProperty("validity", 3600);
+        try {
+            HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/jwt/batch", request, 1000, 1000, null,
+                    Utils.getCdiVersion2_10ForTests(), "jwt");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(e.statusCode, 400);
+            assertEquals(e.getMessage(),
+                    "Http error. Status Code: 400. Message: cdi-version 2.10 does not support this API");
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void badInput() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        {
+            JsonArray payloads = new JsonArray();
+            payloads.add(new JsonObject());
+            payloads.add(new JsonPrimitive("notAnObject"));
+            JsonObject request = new JsonObject();
+            request.addProperty("algorithm", "rs256");
+            request.addProperty("jwksDomain", "http://localhost");
+            request.add("payloads", payloads);
+            request.addProperty("validity", 3600);
+            try {
+                HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                        "http://localhost:3567/recipe/jwt/batch", request, 1000, 1000, null,
+                        Utils.getCdiVersion2_11ForTests(), "jwt");
+                fail();
+            } catch (HttpResponseException e) {
+                assertEquals(e.statusCode, 400);
+                assertEquals(e.getMessage(),
+                        "Http error. Status Code: 400. Message: Field name 'payloads' is invalid in JSON input");
+            }
+        }
+
+        {
+            JsonArray payloads = new JsonArray();
+            for (int i = 0; i < JWTSigningBatchAPI.MAX_BATCH_SIZE + 1; i++) {
+                payloads.add(new JsonObject());
+            }
+            JsonObject request = new JsonObject();
+            request.addProperty("algorithm", "rs256");
+            request.addProperty("jwksDomain", "http://localhost");
+            request.add("payloads", payloads);
+            request.addProperty("validity", 3600);
+            try {
+                HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                        "http://localhost:3567/recipe/jwt/batch", request, 1000, 1000, null,
+                        Utils.getCdiVersion2_11ForTests(), "jwt");
+                fail();
+            } catch (HttpResponseException e) {
+                assertEquals(e.statusCode, 400);
+                assertEquals(e.getMessage(), "Http error. Status Code: 400. Message: Field name 'payloads' cannot "
+                        + "contain more than " + JWTSigningBatchAPI.MAX_BATCH_SIZE + " elements");
+            }
+        }
+
+        {
+            JsonObject request = new JsonObject();
+            request.addProperty("algorithm", "rs256");
+            request.addProperty("jwksDomain", "http://localhost");
+            request.add("payloads", new JsonArray());
+            request.addProperty("validity", 0);
+            try {
+                HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                        "http://localhost:3567/recipe/jwt/batch", request, 1000, 1000, null,
+                        Utils.getCdiVersion2_11ForTests(), "jwt");
+                fail();
+            } catch (HttpResponseException e) {
+                assertEquals(e.statusCode, 400);
+            }
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
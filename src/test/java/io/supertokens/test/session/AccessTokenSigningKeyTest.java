@@ -16,6 +16,9 @@
 
 package io.supertokens.test.session;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import io.supertokens.ProcessState.EventAndException;
 import io.supertokens.ProcessState.PROCESS_STATE;
 import io.supertokens.pluginInterface.KeyValueInfo;
@@ -39,7 +42,13 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -192,4 +201,107 @@ public class AccessTokenSigningKeyTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void keyInfoHoldsParsedKeys() throws InterruptedException, StorageQueryException,
+            StorageTransactionLogicException {
+        String[] args = { "../" };
+        TestingProcess process = TestingProcessManager.start(args);
+
+        EventAndException e = process.checkOrWaitForEvent(PROCESS_STATE.STARTED);
+        assertNotNull(e);
+
+        KeyInfo key = AccessTokenSigningKey.getInstance(process.getProcess())
+                .getLatestIssuedKey();
+        io.supertokens.utils.Utils.PubPriKey pubPriKey = new io.supertokens.utils.Utils.PubPriKey(key.value);
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        assertEquals(pubPriKey.publicKey, encoder.encodeToString(key.publicKey.getEncoded()));
+        assertEquals(pubPriKey.privateKey, encoder.encodeToString(key.privateKey.getEncoded()));
+
+        // the same parsed key objects are handed out until the keys are refreshed
+        assertSame(key.publicKey,
+                AccessTokenSigningKey.getInstance(process.getProcess()).getLatestIssuedKey().publicKey);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void concurrentReadersShareTheSameSnapshot() throws Exception {
+        String[] args = { "../" };
+        TestingProcess process = TestingProcessManager.start(args);
+
+        EventAndException e = process.checkOrWaitForEvent(PROCESS_STATE.STARTED);
+        assertNotNull(e);
+
+        AccessTokenSigningKey accessTokenSigningKeyInstance = AccessTokenSigningKey.getInstance(process.getProcess());
+
+        ExecutorService es = Executors.newFixedThreadPool(16);
+        List<Future<List<KeyInfo>>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            results.add(es.submit(accessTokenSigningKeyInstance::getAllKeys));
+        }
+        es.shutdown();
+        assertTrue(es.awaitTermination(1, TimeUnit.MINUTES));
+
+        // only one thread should have loaded the keys, and everyone else should see the snapshot it published
+        List<KeyInfo> first = results.get(0).get();
+        for (Future<List<KeyInfo>> result : results) {
+            assertSame(first, result.get());
+        }
+        assertEquals(first.size(), 1);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void signingKeysFragmentIsOnlyRenderedWhenTheKeysChange() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("access_token_signing_key_update_interval", "0.00027"); // 1 seconds
+        TestingProcess process = TestingProcessManager.start(args);
+
+        EventAndException e = process.checkOrWaitForEvent(PROCESS_STATE.STARTED);
+        assertNotNull(e);
+
+        AccessTokenSigningKey accessTokenSigningKeyInstance = AccessTokenSigningKey.getInstance(process.getProcess());
+
+        AccessTokenSigningKey.SigningKeysFragment fragment = accessTokenSigningKeyInstance.getSigningKeysFragment();
+        assertSame(fragment, accessTokenSigningKeyInstance.getSigningKeysFragment());
+        assertFragmentMatchesKeys(accessTokenSigningKeyInstance, fragment);
+
+        Thread.sleep(1500);
+
+        AccessTokenSigningKey.SigningKeysFragment newFragment = accessTokenSigningKeyInstance
+                .getSigningKeysFragment();
+        assertNotSame(fragment, newFragment);
+        assertFragmentMatchesKeys(accessTokenSigningKeyInstance, newFragment);
+        assertEquals(accessTokenSigningKeyInstance.getAllKeys().size(), 2);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    private static void assertFragmentMatchesKeys(AccessTokenSigningKey accessTokenSigningKeyInstance,
+            AccessTokenSigningKey.SigningKeysFragment fragment)
+            throws StorageQueryException, StorageTransactionLogicException {
+        JsonObject expected = new JsonObject();
+        expected.addProperty("jwtSigningPublicKey", new io.supertokens.utils.Utils.PubPriKey(
+                accessTokenSigningKeyInstance.getLatestIssuedKey().value).publicKey);
+        expected.addProperty("jwtSigningPublicKeyExpiryTime", accessTokenSigningKeyInstance.getKeyExpiryTime());
+        assertEquals(expected, new JsonParser().parse("{" + fragment.getSerialisedFields(false) + "}"));
+
+        JsonArray keyList = new JsonArray();
+        for (KeyInfo key : accessTokenSigningKeyInstance.getAllKeys()) {
+            JsonObject keyJson = new JsonObject();
+            keyJson.addProperty("publicKey", new io.supertokens.utils.Utils.PubPriKey(key.value).publicKey);
+            keyJson.addProperty("expiryTime", key.expiryTime);
+            keyJson.addProperty("createdAt", key.createdAtTime);
+            keyList.add(keyJson);
+        }
+        expected.add("jwtSigningPublicKeyList", keyList);
+        assertEquals(expected, new JsonParser().parse("{" + fragment.getSerialisedFields(true) + "}"));
+    }
 }
@@ -17,6 +17,7 @@
 package io.supertokens.test.session;
 
 import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
 import io.supertokens.ProcessState.EventAndException;
 import io.supertokens.ProcessState.PROCESS_STATE;
 import io.supertokens.exceptions.TryRefreshTokenException;
@@ -28,6 +29,7 @@ import io.supertokens.session.accessToken.AccessToken.AccessTokenInfo;
 import io.supertokens.session.accessToken.AccessTokenSigningKey;
 import io.supertokens.session.info.SessionInformationHolder;
 import io.supertokens.session.info.TokenInfo;
+import io.supertokens.session.jwt.JWT;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.TestingProcessManager.TestingProcess;
 import io.supertokens.test.Utils;
@@ -167,6 +169,63 @@ public class AccessTokenTest {
 
     }
 
+    @Test
+    public void accessTokenHasV2HeaderByDefault() throws Exception {
+        String[] args = { "../" };
+        TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        JsonObject jsonObj = new JsonObject();
+        jsonObj.addProperty("key", "value");
+
+        TokenInfo token = AccessToken.createNewAccessToken(process.getProcess(), "sessionHandle", "userId",
+                "refreshTokenHash1", "parentRefreshTokenHash1", jsonObj, "antiCsrfToken", System.currentTimeMillis(),
+                null);
+        assertEquals(AccessToken.VERSION.V2, JWT.getPayloadWithoutVerifying(token.token).version);
+        assertNull(JWT.getKeyIdWithoutVerifying(token.token));
+        AccessToken.getInfoFromAccessToken(process.getProcess(), token.token, false);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void accessTokenHasKeyIdOfSigningKey() throws Exception {
+        Utils.setValueInConfig("access_token_signing_key_update_interval", "0.00027"); // 1 second
+        Utils.setValueInConfig("access_token_key_id_in_header", "true");
+
+        String[] args = { "../" };
+        TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        JsonObject jsonObj = new JsonObject();
+        jsonObj.addProperty("key", "value");
+
+        TokenInfo oldToken = AccessToken.createNewAccessToken(process.getProcess(), "sessionHandle", "userId",
+                "refreshTokenHash1", "parentRefreshTokenHash1", jsonObj, "antiCsrfToken", System.currentTimeMillis(),
+                null);
+        String oldKeyId = AccessTokenSigningKey.getInstance(process.getProcess()).getLatestIssuedKey().id;
+        assertEquals(oldKeyId, JWT.getKeyIdWithoutVerifying(oldToken.token));
+
+        Thread.sleep(1500);
+
+        TokenInfo newToken = AccessToken.createNewAccessToken(process.getProcess(), "sessionHandle", "userId",
+                "refreshTokenHash1", "parentRefreshTokenHash1", jsonObj, "antiCsrfToken", System.currentTimeMillis(),
+                null);
+        String newKeyId = AccessTokenSigningKey.getInstance(process.getProcess()).getLatestIssuedKey().id;
+        assertNotEquals(oldKeyId, newKeyId);
+        assertEquals(newKeyId, JWT.getKeyIdWithoutVerifying(newToken.token));
+
+        // the token signed with the older key is verified using that key directly
+        AccessToken.getInfoFromAccessToken(process.getProcess(), oldToken.token, false);
+        AccessToken.getInfoFromAccessToken(process.getProcess(), newToken.token, false);
+        assertNull(ProcessState.getInstance(process.getProcess())
+                .getLastEventByName(PROCESS_STATE.RETRYING_ACCESS_TOKEN_JWT_VERIFICATION));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
     // good case test
     @Test
     public void inputOutputTest() throws InterruptedException, InvalidKeyException, NoSuchAlgorithmException,
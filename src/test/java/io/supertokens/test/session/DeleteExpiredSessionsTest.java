@@ -16,8 +16,13 @@
 
 package io.supertokens.test.session;
 
+import com.google.gson.JsonObject;
 import io.supertokens.ProcessState;
+import io.supertokens.cronjobs.BatchedDeletion;
 import io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions;
+import io.supertokens.pluginInterface.session.SessionStorage;
+import io.supertokens.session.Session;
+import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
 import org.junit.AfterClass;
@@ -26,8 +31,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 public class DeleteExpiredSessionsTest {
     @Rule
@@ -55,4 +59,71 @@ public class DeleteExpiredSessionsTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void expiredSessionsAreDeletedInRateLimitedBatches() throws Exception {
+        Utils.setValueInConfig("refresh_token_validity", "" + 1.0 / 60.0);
+        Utils.setValueInConfig("expired_data_cleanup_batch_size", "2");
+        Utils.setValueInConfig("expired_data_cleanup_rows_per_second", "4");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 5; i++) {
+            Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject(), false);
+        }
+        assertEquals(StorageLayer.getSessionStorage(process.getProcess()).getNumberOfSessions(), 5);
+
+        Thread.sleep(1500);
+
+        DeleteExpiredSessions.getInstance(process.getProcess()).run();
+
+        assertEquals(StorageLayer.getSessionStorage(process.getProcess()).getNumberOfSessions(), 0);
+        BatchedDeletion.Metrics metrics = DeleteExpiredSessions.getInstance(process.getProcess()).getLastRunMetrics();
+        assertNotNull(metrics);
+        assertEquals(metrics.rowsDeleted, 5);
+        assertEquals(metrics.batches, 3);
+        // 4 rows were deleted before the last batch, which at 4 rows per second takes at least a second
+        assertTrue(metrics.timeTakenMS >= 1000);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void revocationLogIsOnlyCleanedUpWhenTheFilterIsEnabled() throws Exception {
+        {
+            String[] args = { "../" };
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+            SessionStorage storage = StorageLayer.getSessionStorage(process.getProcess());
+            storage.addToSessionRevocationLog(new String[] { "handle" }, 0);
+
+            DeleteExpiredSessions.getInstance(process.getProcess()).run();
+            assertArrayEquals(storage.getSessionHandlesInRevocationLogSince(0), new String[] { "handle" });
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+
+        Utils.reset();
+        Utils.setValueInConfig("access_token_blacklisting", "true");
+        Utils.setValueInConfig("access_token_revocation_filter_sync_interval", "1");
+        {
+            String[] args = { "../" };
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+            SessionStorage storage = StorageLayer.getSessionStorage(process.getProcess());
+            storage.addToSessionRevocationLog(new String[] { "handle" }, 0);
+
+            DeleteExpiredSessions.getInstance(process.getProcess()).run();
+            assertEquals(storage.getSessionHandlesInRevocationLogSince(0).length, 0);
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+    }
 }
@@ -70,6 +70,107 @@ public class JWTTest {
         }
     }
 
+    @Test
+    public void validUsageV3() throws Exception {
+        TestInput input = new TestInput("value");
+        io.supertokens.utils.Utils.PubPriKey rsa = io.supertokens.utils.Utils.generateNewPubPriKey();
+        String token = JWT.createJWT(new Gson().toJsonTree(input),
+                io.supertokens.utils.Utils.getPrivateKeyFromString(rsa.privateKey), AccessToken.VERSION.V3, "kid1");
+
+        assertEquals("kid1", JWT.getKeyIdWithoutVerifying(token));
+
+        JWT.JWTInfo info = JWT.verifyJWTAndGetPayload(token, rsa.publicKey);
+        assertEquals(input, new Gson().fromJson(info.payload, TestInput.class));
+        assertEquals(AccessToken.VERSION.V3, info.version);
+        assertEquals("kid1", info.keyId);
+
+        // older versions do not have a kid
+        String tokenV2 = JWT.createJWT(new Gson().toJsonTree(input), rsa.privateKey, AccessToken.VERSION.V2);
+        assertNull(JWT.getKeyIdWithoutVerifying(tokenV2));
+    }
+
+    @Test
+    public void parsedV3TokenHasHeaderOfItsKey() throws Exception {
+        TestInput input = new TestInput("value");
+        io.supertokens.utils.Utils.PubPriKey rsa = io.supertokens.utils.Utils.generateNewPubPriKey();
+        String token = JWT.createJWT(new Gson().toJsonTree(input),
+                io.supertokens.utils.Utils.getPrivateKeyFromString(rsa.privateKey), AccessToken.VERSION.V3, "kid1");
+
+        JWT.ParsedJWT parsedJWT = JWT.parseJWT(token);
+        assertNull(parsedJWT.version);
+        assertTrue(parsedJWT.hasHeader(JWT.createHeaderV3("kid1")));
+        assertFalse(parsedJWT.hasHeader(JWT.createHeaderV3("kid2")));
+
+        JWT.JWTInfo info = JWT.verifyJWTAndGetPayload(parsedJWT, AccessToken.VERSION.V3, "kid1",
+                io.supertokens.utils.Utils.getPublicKeyFromString(rsa.publicKey));
+        assertEquals(input, new Gson().fromJson(info.payload, TestInput.class));
+
+        // non ASCII characters are not part of any valid token
+        String modifiedToken = token.substring(0, token.length() - 1) + "\u0141";
+        try {
+            JWT.verifyJWTAndGetPayload(modifiedToken, rsa.publicKey);
+            fail();
+        } catch (JWTException e) {
+            assertEquals("JWT verification failed", e.getMessage());
+        }
+
+        String tokenV2 = JWT.createJWT(new Gson().toJsonTree(input), rsa.privateKey, AccessToken.VERSION.V2);
+        assertEquals(AccessToken.VERSION.V2, JWT.parseJWT(tokenV2).version);
+    }
+
+    @Test
+    public void modifiedV3HeaderFails() throws Exception {
+        TestInput input = new TestInput("value");
+        io.supertokens.utils.Utils.PubPriKey rsa = io.supertokens.utils.Utils.generateNewPubPriKey();
+        String token = JWT.createJWT(new Gson().toJsonTree(input),
+                io.supertokens.utils.Utils.getPrivateKeyFromString(rsa.privateKey), AccessToken.VERSION.V3, "kid1");
+        String[] splittedToken = token.split("\\.");
+
+        String[] modifiedHeaders = { "{\"alg\":\"RS256\",\"typ\":\"JWT\",\"version\":\"3\"}",
+                "{\"alg\":\"none\",\"typ\":\"JWT\",\"version\":\"3\",\"kid\":\"kid1\"}",
+                "{\"alg\":\"RS256\",\"typ\":\"JWT\",\"version\":\"3\",\"kid\":{}}", "not json" };
+        for (String header : modifiedHeaders) {
+            String modifiedToken = io.supertokens.utils.Utils.convertToBase64(header) + "." + splittedToken[1] + "."
+                    + splittedToken[2];
+            try {
+                JWT.verifyJWTAndGetPayload(modifiedToken, rsa.publicKey);
+                fail();
+            } catch (JWTException e) {
+                assertEquals("JWT header mismatch", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void malformedJWTFails() throws Exception {
+        TestInput input = new TestInput("value");
+        io.supertokens.utils.Utils.PubPriKey rsa = io.supertokens.utils.Utils.generateNewPubPriKey();
+        String token = JWT.createJWT(new Gson().toJsonTree(input), rsa.privateKey, AccessToken.VERSION.V2);
+        String[] splittedToken = token.split("\\.");
+
+        String[] invalidTokens = { "token", splittedToken[0] + "." + splittedToken[1], token + ".",
+                token + "." + splittedToken[2] };
+        for (String invalidToken : invalidTokens) {
+            try {
+                JWT.verifyJWTAndGetPayload(invalidToken, rsa.publicKey);
+                fail();
+            } catch (JWTException e) {
+                assertEquals("Invalid JWT", e.getMessage());
+            }
+        }
+
+        String[] badSignatureTokens = { token.substring(0, token.lastIndexOf('.') + 1),
+                splittedToken[0] + "." + splittedToken[1] + ".!notbase64!" };
+        for (String badSignatureToken : badSignatureTokens) {
+            try {
+                JWT.verifyJWTAndGetPayload(badSignatureToken, rsa.publicKey);
+                fail();
+            } catch (JWTException e) {
+                assertEquals("JWT verification failed", e.getMessage());
+            }
+        }
+    }
+
     // wrong signature error
     @Test
     public void wrongSignatureUsage() throws Exception {
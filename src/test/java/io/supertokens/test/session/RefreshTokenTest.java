@@ -16,6 +16,7 @@
 
 package io.supertokens.test.session;
 
+import com.google.gson.JsonObject;
 import io.supertokens.ProcessState.PROCESS_STATE;
 import io.supertokens.config.Config;
 import io.supertokens.exceptions.UnauthorisedException;
@@ -25,6 +26,7 @@ import io.supertokens.session.info.TokenInfo;
 import io.supertokens.session.refreshToken.RefreshToken;
 import io.supertokens.session.refreshToken.RefreshToken.RefreshTokenInfo;
 import io.supertokens.session.refreshToken.RefreshToken.TYPE;
+import io.supertokens.session.refreshToken.RefreshTokenKey;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.TestingProcessManager.TestingProcess;
 import io.supertokens.test.Utils;
@@ -93,9 +95,11 @@ public class RefreshTokenTest {
         assertEquals("V0", TYPE.FREE.toString());
         assertEquals("V1", TYPE.PAID.toString());
         assertEquals("V2", TYPE.FREE_OPTIMISED.toString());
+        assertEquals("V3", TYPE.DERIVED_KEY.toString());
         assertSame(TYPE.fromString("V0"), TYPE.FREE);
         assertSame(TYPE.fromString("V1"), TYPE.PAID);
         assertSame(TYPE.fromString("V2"), TYPE.FREE_OPTIMISED);
+        assertSame(TYPE.fromString("V3"), TYPE.DERIVED_KEY);
         assertNull(TYPE.fromString("random"));
     }
 
@@ -138,6 +142,69 @@ public class RefreshTokenTest {
 
     }
 
+    @Test
+    public void newRefreshTokensAreV2ByDefault() throws Exception {
+        String[] args = { "../" };
+        TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        TokenInfo tokenInfo = RefreshToken.createNewRefreshToken(process.getProcess(), "sessionHandle", "userId",
+                "parentRefreshTokenHash1", "antiCsrfToken");
+        assertTrue(tokenInfo.token.endsWith(".V2"));
+        RefreshTokenInfo infoFromToken = RefreshToken.getInfoFromRefreshToken(process.getProcess(), tokenInfo.token);
+        assertSame(infoFromToken.type, TYPE.FREE_OPTIMISED);
+        assertEquals("sessionHandle", infoFromToken.sessionHandle);
+        assertEquals("antiCsrfToken", infoFromToken.antiCsrfToken);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void newRefreshTokensAreV3IfEnabledAndV2TokensStillWork() throws Exception {
+        Utils.setValueInConfig("refresh_token_derived_key", "true");
+        String[] args = { "../" };
+        TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        TokenInfo tokenInfo = RefreshToken.createNewRefreshToken(process.getProcess(), "sessionHandle", "userId",
+                "parentRefreshTokenHash1", "antiCsrfToken");
+        assertTrue(tokenInfo.token.endsWith(".V3"));
+        RefreshTokenInfo infoFromToken = RefreshToken.getInfoFromRefreshToken(process.getProcess(), tokenInfo.token);
+        assertSame(infoFromToken.type, TYPE.DERIVED_KEY);
+        assertEquals("sessionHandle", infoFromToken.sessionHandle);
+        assertEquals("antiCsrfToken", infoFromToken.antiCsrfToken);
+
+        // a V2 token, encrypted with a key derived from the master key using the IV as salt
+        String nonce = io.supertokens.utils.Utils.hashSHA256("nonce");
+        JsonObject payload = new JsonObject();
+        payload.addProperty("sessionHandle", "sessionHandle");
+        payload.addProperty("userId", "userId");
+        payload.addProperty("parentRefreshTokenHash1", "parentRefreshTokenHash1");
+        payload.addProperty("nonce", nonce);
+        payload.addProperty("antiCsrfToken", "antiCsrfToken");
+        String legacyToken = io.supertokens.utils.Utils.encrypt(payload.toString(),
+                RefreshTokenKey.getInstance(process.getProcess()).getKey()) + "." + nonce + ".V2";
+
+        RefreshTokenInfo infoFromLegacyToken = RefreshToken.getInfoFromRefreshToken(process.getProcess(),
+                legacyToken);
+        assertSame(infoFromLegacyToken.type, TYPE.FREE_OPTIMISED);
+        assertEquals("sessionHandle", infoFromLegacyToken.sessionHandle);
+        assertEquals("userId", infoFromLegacyToken.userId);
+        assertEquals("parentRefreshTokenHash1", infoFromLegacyToken.parentRefreshTokenHash1);
+
+        // the V2 and V3 formats are not interchangeable
+        try {
+            RefreshToken.getInfoFromRefreshToken(process.getProcess(),
+                    legacyToken.substring(0, legacyToken.length() - 1) + "3");
+            fail();
+        } catch (UnauthorisedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void createRefreshTokenButVerifyWithDifferentSigningKeyFailure()
             throws InterruptedException, InvalidKeyException, NoSuchAlgorithmException, InvalidKeySpecException,
@@ -0,0 +1,172 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.session;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class SessionCacheTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void sessionIsNotReadFromDbAgainWithinTTL() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting", "true");
+        Utils.setValueInConfig("access_token_blacklisting_cache_ttl", "2000");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.accessToken != null;
+        Session.getSession(process.getProcess(), sessionInfo.accessToken.token, null, false, false);
+
+        // deleting the session directly (like another core would) is only seen once the cached entry expires
+        StorageLayer.getSessionStorage(process.getProcess()).deleteSession(new String[] { sessionInfo.session.handle });
+        Session.getSession(process.getProcess(), sessionInfo.accessToken.token, null, false, false);
+
+        Thread.sleep(2500);
+
+        try {
+            Session.getSession(process.getProcess(), sessionInfo.accessToken.token, null, false, false);
+            fail();
+        } catch (UnauthorisedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void revokingAndUpdatingSessionsInvalidatesTheCache() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting", "true");
+        Utils.setValueInConfig("access_token_blacklisting_cache_ttl", "60000");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.accessToken != null;
+        Session.getSession(process.getProcess(), sessionInfo.accessToken.token, null, false, false);
+
+        JsonObject newUserDataInJWT = new JsonObject();
+        newUserDataInJWT.addProperty("key", "value");
+        Session.updateSession(process.getProcess(), sessionInfo.session.handle, null, newUserDataInJWT, null);
+        SessionInformationHolder newInfo = Session.getSession(process.getProcess(), sessionInfo.accessToken.token,
+                null, false, false);
+        assertEquals(newInfo.session.userDataInJWT, newUserDataInJWT);
+
+        Session.revokeAllSessionsForUser(process.getProcess(), "userId");
+        try {
+            Session.getSession(process.getProcess(), sessionInfo.accessToken.token, null, false, false);
+            fail();
+        } catch (UnauthorisedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void invalidCacheTTLFailsToStart() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting_cache_ttl", "60001");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertTrue(e.exception.getMessage().startsWith(
+                "'access_token_blacklisting_cache_ttl' must be between 0 and 60000 milliseconds inclusive."));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void onlyCacheSizeSessionsAreCached() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting", "true");
+        Utils.setValueInConfig("access_token_blacklisting_cache_ttl", "60000");
+        Utils.setValueInConfig("access_token_blacklisting_cache_size", "1");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder session1 = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        SessionInformationHolder session2 = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert session1.accessToken != null;
+        assert session2.accessToken != null;
+        Session.getSession(process.getProcess(), session1.accessToken.token, null, false, false);
+        Session.getSession(process.getProcess(), session2.accessToken.token, null, false, false);
+
+        // only the first session fit in the cache, so only its deletion is not seen yet
+        StorageLayer.getSessionStorage(process.getProcess())
+                .deleteSession(new String[] { session1.session.handle, session2.session.handle });
+        Session.getSession(process.getProcess(), session1.accessToken.token, null, false, false);
+        try {
+            Session.getSession(process.getProcess(), session2.accessToken.token, null, false, false);
+            fail();
+        } catch (UnauthorisedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void invalidCacheSizeFailsToStart() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting_cache_size", "0");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertTrue(e.exception.getMessage().startsWith("'access_token_blacklisting_cache_size' must be >= 1."));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
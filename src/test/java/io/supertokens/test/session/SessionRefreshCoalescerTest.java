@@ -0,0 +1,212 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.session;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.exceptions.TokenTheftDetectedException;
+import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class SessionRefreshCoalescerTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void concurrentRefreshesWithTheSameTokenAllSucceed() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.refreshToken != null;
+        String refreshToken = sessionInfo.refreshToken.token;
+
+        ExecutorService es = Executors.newFixedThreadPool(10);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SessionInformationHolder>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(es.submit(() -> {
+                start.await();
+                return Session.refreshSession(process.getProcess(), refreshToken, null, false);
+            }));
+        }
+        start.countDown();
+        for (Future<SessionInformationHolder> result : results) {
+            SessionInformationHolder refreshed = result.get();
+            assertEquals(refreshed.session.handle, sessionInfo.session.handle);
+            assertNotNull(refreshed.refreshToken);
+        }
+        es.shutdown();
+
+        // calls that did not overlap get different child refresh tokens, and only one of them can be used, like
+        // without coalescing. So we only check that the result of the first call can be refreshed again.
+        assert results.get(0).get().refreshToken != null;
+        Session.refreshSession(process.getProcess(), results.get(0).get().refreshToken.token, null, false);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void resultIsReusedWithinGracePeriodUntilTheNewTokenIsUsed() throws Exception {
+        Utils.setValueInConfig("session_refresh_grace_period", "60000");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.refreshToken != null;
+        String refreshToken = sessionInfo.refreshToken.token;
+
+        SessionInformationHolder first = Session.refreshSession(process.getProcess(), refreshToken, null, false);
+        SessionInformationHolder second = Session.refreshSession(process.getProcess(), refreshToken, null, false);
+        assertSame(first, second);
+
+        // once the new refresh token has been used, reusing the old one is token theft again
+        assert first.refreshToken != null;
+        Session.refreshSession(process.getProcess(), first.refreshToken.token, null, false);
+        try {
+            Session.refreshSession(process.getProcess(), refreshToken, null, false);
+            fail();
+        } catch (TokenTheftDetectedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void resultIsNotReusedAfterTheNewAccessTokenIsVerified() throws Exception {
+        Utils.setValueInConfig("session_refresh_grace_period", "60000");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.refreshToken != null;
+        String refreshToken = sessionInfo.refreshToken.token;
+
+        SessionInformationHolder first = Session.refreshSession(process.getProcess(), refreshToken, null, false);
+
+        // verifying the new access token promotes the new refresh token, so reusing the old one is token theft again
+        assert first.accessToken != null;
+        Session.getSession(process.getProcess(), first.accessToken.token, first.antiCsrfToken, false, true);
+        try {
+            Session.refreshSession(process.getProcess(), refreshToken, null, false);
+            fail();
+        } catch (TokenTheftDetectedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void resultIsNotReusedAfterRevoking() throws Exception {
+        Utils.setValueInConfig("session_refresh_grace_period", "60000");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.refreshToken != null;
+        String refreshToken = sessionInfo.refreshToken.token;
+
+        Session.refreshSession(process.getProcess(), refreshToken, null, false);
+        Session.revokeSessionUsingSessionHandles(process.getProcess(), new String[] { sessionInfo.session.handle });
+        try {
+            Session.refreshSession(process.getProcess(), refreshToken, null, false);
+            fail();
+        } catch (UnauthorisedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void newTokensAreCreatedForEachRefreshByDefault() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.refreshToken != null;
+        String refreshToken = sessionInfo.refreshToken.token;
+
+        SessionInformationHolder first = Session.refreshSession(process.getProcess(), refreshToken, null, false);
+        SessionInformationHolder second = Session.refreshSession(process.getProcess(), refreshToken, null, false);
+        assert first.refreshToken != null && second.refreshToken != null;
+        assertNotEquals(first.refreshToken.token, second.refreshToken.token);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void invalidGracePeriodFailsToStart() throws Exception {
+        Utils.setValueInConfig("session_refresh_grace_period", "60001");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertTrue(e.exception.getMessage()
+                .startsWith("'session_refresh_grace_period' must be between 0 and 60000 milliseconds inclusive."));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.session;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.pluginInterface.session.SessionStorage;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.session.revocation.SessionRevocationFilter;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SessionRevocationFilterTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void onlySessionsInTheRevocationLogAreLookedUpInDb() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting", "true");
+        Utils.setValueInConfig("access_token_revocation_filter_sync_interval", "3600");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        SessionRevocationFilter filter = SessionRevocationFilter.getInstance(process.getProcess());
+        SessionStorage storage = StorageLayer.getSessionStorage(process.getProcess());
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.accessToken != null;
+        filter.sync();
+
+        // the session is not in the log, so its access token is accepted without checking the db
+        storage.deleteSession(new String[] { sessionInfo.session.handle });
+        assertFalse(filter.mightBeRevoked(sessionInfo.session.handle));
+        Session.getSession(process.getProcess(), sessionInfo.accessToken.token, null, false, false);
+
+        // this is what another core does when it revokes a session
+        storage.addToSessionRevocationLog(new String[] { sessionInfo.session.handle }, System.currentTimeMillis());
+        filter.sync();
+
+        assertTrue(filter.mightBeRevoked(sessionInfo.session.handle));
+        try {
+            Session.getSession(process.getProcess(), sessionInfo.accessToken.token, null, false, false);
+            fail();
+        } catch (UnauthorisedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void changesMadeOnThisCoreAreSeenWithoutASync() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting", "true");
+        Utils.setValueInConfig("access_token_revocation_filter_sync_interval", "3600");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        SessionRevocationFilter.getInstance(process.getProcess()).sync();
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.accessToken != null;
+
+        JsonObject newUserDataInJWT = new JsonObject();
+        newUserDataInJWT.addProperty("key", "value");
+        Session.updateSession(process.getProcess(), sessionInfo.session.handle, null, newUserDataInJWT, null);
+        SessionInformationHolder newInfo = Session.getSession(process.getProcess(), sessionInfo.accessToken.token,
+                null, false, false);
+        assertEquals(newInfo.session.userDataInJWT, newUserDataInJWT);
+
+        Session.revokeSessionUsingSessionHandles(process.getProcess(), new String[] { sessionInfo.session.handle });
+        try {
+            Session.getSession(process.getProcess(), sessionInfo.accessToken.token, null, false, false);
+            fail();
+        } catch (UnauthorisedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void revokingMoreSessionsThanFitInOneQueryWorks() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting", "true");
+        Utils.setValueInConfig("access_token_revocation_filter_sync_interval", "3600");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        SessionRevocationFilter filter = SessionRevocationFilter.getInstance(process.getProcess());
+
+        // each handle takes two parameters in the revocation log insert, so this needs more than one query
+        int numberOfSessions = 600;
+        Set<String> sessionHandles = new HashSet<>();
+        for (int i = 0; i < numberOfSessions; i++) {
+            sessionHandles.add(Session.createNewSession(process.getProcess(), "userId", new JsonObject(),
+                    new JsonObject(), false).session.handle);
+        }
+
+        String[] revokedHandles = Session.revokeAllSessionsForUser(process.getProcess(), "userId");
+        assertEquals(new HashSet<>(Arrays.asList(revokedHandles)), sessionHandles);
+        assertEquals(StorageLayer.getSessionStorage(process.getProcess()).getNumberOfSessions(), 0);
+
+        filter.sync();
+        for (String sessionHandle : sessionHandles) {
+            assertTrue(filter.mightBeRevoked(sessionHandle));
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void revocationLogTakesMoreHandlesThanTheDriverAllowsParametersInOneQuery() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        SessionStorage storage = StorageLayer.getSessionStorage(process.getProcess());
+
+        // SQLite's default limit is 999 parameters per query, but the bundled driver allows 250000. This needs more
+        // than that in a single insert, so that it fails if the insert is not split.
+        String[] sessionHandles = new String[130000];
+        for (int i = 0; i < sessionHandles.length; i++) {
+            sessionHandles[i] = "handle" + i;
+        }
+        long time = System.currentTimeMillis();
+        storage.addToSessionRevocationLog(sessionHandles, time);
+
+        assertEquals(storage.getSessionHandlesInRevocationLogSince(time).length, sessionHandles.length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
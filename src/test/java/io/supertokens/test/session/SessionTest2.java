@@ -154,6 +154,112 @@ public class SessionTest2 {
 
     }
 
+    @Test
+    public void parentRefreshTokenIsTheftAfterChildIsPromoted() throws InterruptedException, StorageQueryException,
+            NoSuchAlgorithmException, InvalidKeyException, IOException, InvalidKeySpecException,
+            StorageTransactionLogicException, UnauthorisedException, TokenTheftDetectedException,
+            SignatureException, IllegalBlockSizeException, BadPaddingException, InvalidAlgorithmParameterException,
+            NoSuchPaddingException {
+
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Main main = process.getProcess();
+
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+        JsonObject userDataInDatabase = new JsonObject();
+        userDataInDatabase.addProperty("key", "value");
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(main, "userId", userDataInJWT,
+                userDataInDatabase, false);
+        assert sessionInfo.refreshToken != null;
+
+        SessionInformationHolder childSession = Session.refreshSession(main, sessionInfo.refreshToken.token,
+                sessionInfo.antiCsrfToken, false);
+        assert childSession.refreshToken != null;
+
+        // using the child refresh token promotes it to be the parent, in the same transaction that creates the new
+        // tokens
+        SessionInformationHolder grandChildSession = Session.refreshSession(main, childSession.refreshToken.token,
+                childSession.antiCsrfToken, false);
+        assert grandChildSession.refreshToken != null;
+        assert grandChildSession.accessToken != null;
+        assertEquals(grandChildSession.session.handle, sessionInfo.session.handle);
+        assertEquals(grandChildSession.session.userDataInJWT.toString(), userDataInJWT.toString());
+
+        try {
+            Session.refreshSession(main, sessionInfo.refreshToken.token, sessionInfo.antiCsrfToken, false);
+            fail();
+        } catch (TokenTheftDetectedException e) {
+            assertEquals(e.sessionHandle, sessionInfo.session.handle);
+            assertEquals(e.userId, sessionInfo.session.userId);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+    }
+
+    @Test
+    public void promotedRefreshTokenCanBeUsedTwice() throws InterruptedException, StorageQueryException,
+            NoSuchAlgorithmException, InvalidKeyException, IOException, InvalidKeySpecException,
+            StorageTransactionLogicException, TryRefreshTokenException, UnauthorisedException,
+            TokenTheftDetectedException,
+            SignatureException, IllegalBlockSizeException, BadPaddingException, InvalidAlgorithmParameterException,
+            NoSuchPaddingException {
+
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Main main = process.getProcess();
+
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+        JsonObject userDataInDatabase = new JsonObject();
+        userDataInDatabase.addProperty("key", "value");
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(main, "userId", userDataInJWT,
+                userDataInDatabase, false);
+        assert sessionInfo.refreshToken != null;
+
+        SessionInformationHolder childSession = Session.refreshSession(main, sessionInfo.refreshToken.token,
+                sessionInfo.antiCsrfToken, false);
+        assert childSession.refreshToken != null;
+
+        // the first use promotes the child refresh token, the second one finds it already is the parent
+        SessionInformationHolder firstRefresh = Session.refreshSession(main, childSession.refreshToken.token,
+                childSession.antiCsrfToken, false);
+        SessionInformationHolder secondRefresh = Session.refreshSession(main, childSession.refreshToken.token,
+                childSession.antiCsrfToken, false);
+        assert firstRefresh.refreshToken != null;
+        assert secondRefresh.refreshToken != null;
+        assert secondRefresh.accessToken != null;
+        assertNotEquals(firstRefresh.refreshToken.token, secondRefresh.refreshToken.token);
+        assertEquals(secondRefresh.session.handle, sessionInfo.session.handle);
+        assertEquals(secondRefresh.session.userDataInJWT.toString(), userDataInJWT.toString());
+        assertEquals(StorageLayer.getSessionStorage(main).getNumberOfSessions(), 1);
+
+        SessionInformationHolder sessionObj = Session.getSession(main, secondRefresh.accessToken.token,
+                secondRefresh.antiCsrfToken, false, true);
+        assertEquals(sessionObj.session.handle, sessionInfo.session.handle);
+
+        // both new refresh tokens are children of the promoted one, so once one of them is used, the other is theft
+        Session.refreshSession(main, secondRefresh.refreshToken.token, secondRefresh.antiCsrfToken, false);
+        try {
+            Session.refreshSession(main, firstRefresh.refreshToken.token, firstRefresh.antiCsrfToken, false);
+            fail();
+        } catch (TokenTheftDetectedException e) {
+            assertEquals(e.sessionHandle, sessionInfo.session.handle);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+    }
+
     @Test
     public void updateSessionInfo() throws InterruptedException, StorageQueryException, NoSuchAlgorithmException,
             InvalidKeyException, IOException, InvalidKeySpecException, StorageTransactionLogicException,
@@ -129,6 +129,37 @@ public class SessionTest4 {
 
     }
 
+    @Test
+    public void onlyTheRevokedSessionHandlesAreReturned() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        SessionInformationHolder sessionInfo2 = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+
+        // handles that do not exist (or are repeated) are left out, and the rest are in the order they were given
+        String[] revoked = Session.revokeSessionUsingSessionHandles(process.getProcess(),
+                new String[] { sessionInfo2.session.handle, "nonExistentHandle", sessionInfo.session.handle,
+                        sessionInfo2.session.handle });
+        assertEquals(revoked.length, 2);
+        assertEquals(revoked[0], sessionInfo2.session.handle);
+        assertEquals(revoked[1], sessionInfo.session.handle);
+
+        // more sessions than can be deleted in one query
+        for (int i = 0; i < 1200; i++) {
+            Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject(), false);
+        }
+        Session.createNewSession(process.getProcess(), "userId2", new JsonObject(), new JsonObject(), false);
+        assertEquals(Session.revokeAllSessionsForUser(process.getProcess(), "userId").length, 1200);
+        assertEquals(StorageLayer.getSessionStorage(process.getProcess()).getNumberOfSessions(), 1);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void gettingAndUpdatingSessionDataForNonExistantSession()
             throws InterruptedException, StorageQueryException {
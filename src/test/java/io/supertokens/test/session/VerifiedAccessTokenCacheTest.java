@@ -0,0 +1,163 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.session;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.exceptions.TryRefreshTokenException;
+import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.session.Session;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.session.accessToken.VerifiedAccessTokenCache;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class VerifiedAccessTokenCacheTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void verifiedTokenIsCachedAndOtherChecksStillRun() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting", "true");
+        Utils.setValueInConfig("access_token_verification_cache_size", "10");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), true);
+        assert sessionInfo.accessToken != null;
+
+        AccessToken.AccessTokenInfo first = AccessToken.getInfoFromAccessToken(process.getProcess(),
+                sessionInfo.accessToken.token, true);
+        AccessToken.AccessTokenInfo second = AccessToken.getInfoFromAccessToken(process.getProcess(),
+                sessionInfo.accessToken.token, true);
+        assertSame(first, second);
+        assertEquals(VerifiedAccessTokenCache.getInstance(process.getProcess()).size(), 1);
+
+        try {
+            Session.getSession(process.getProcess(), sessionInfo.accessToken.token, "wrongAntiCsrfToken", true, true);
+            fail();
+        } catch (TryRefreshTokenException e) {
+            assertEquals(e.getMessage(), "anti-csrf check failed");
+        }
+
+        Session.revokeSessionUsingSessionHandles(process.getProcess(), new String[] { sessionInfo.session.handle });
+        try {
+            Session.getSession(process.getProcess(), sessionInfo.accessToken.token, sessionInfo.antiCsrfToken, true,
+                    true);
+            fail();
+        } catch (UnauthorisedException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void numberOfCachedTokensIsCapped() throws Exception {
+        Utils.setValueInConfig("access_token_verification_cache_size", "5");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 20; i++) {
+            SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                    new JsonObject(), new JsonObject(), false);
+            assert sessionInfo.accessToken != null;
+            Session.getSession(process.getProcess(), sessionInfo.accessToken.token, null, false, false);
+            assertTrue(VerifiedAccessTokenCache.getInstance(process.getProcess()).size() <= 5);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void removingTheSigningKeyInvalidatesTheCache() throws Exception {
+        Utils.setValueInConfig("access_token_verification_cache_size", "10");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject(), false);
+        assert sessionInfo.accessToken != null;
+        String token = sessionInfo.accessToken.token;
+        Session.getSession(process.getProcess(), token, null, false, false);
+        assertEquals(VerifiedAccessTokenCache.getInstance(process.getProcess()).size(), 1);
+
+        StorageLayer.getSessionStorage(process.getProcess()).removeAccessTokenSigningKeysBefore(Long.MAX_VALUE);
+
+        // a token with a bad signature makes the core reload the signing keys from the db
+        int signatureStart = token.lastIndexOf('.') + 1;
+        int middle = signatureStart + (token.length() - signatureStart) / 2;
+        String tamperedToken = token.substring(0, middle) + (token.charAt(middle) == 'A' ? 'B' : 'A')
+                + token.substring(middle + 1);
+        try {
+            Session.getSession(process.getProcess(), tamperedToken, null, false, false);
+            fail();
+        } catch (TryRefreshTokenException ignored) {
+        }
+
+        assertEquals(VerifiedAccessTokenCache.getInstance(process.getProcess()).size(), 0);
+        try {
+            Session.getSession(process.getProcess(), token, null, false, false);
+            fail();
+        } catch (TryRefreshTokenException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void negativeCacheSizeFailsToStart() throws Exception {
+        Utils.setValueInConfig("access_token_verification_cache_size", "-1");
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertTrue(e.exception.getMessage().startsWith("'access_token_verification_cache_size' must be >= 0."));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
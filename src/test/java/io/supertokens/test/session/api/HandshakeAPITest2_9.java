@@ -34,6 +34,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -245,4 +249,45 @@ public class HandshakeAPITest2_9 {
                 Config.getConfig(process.getProcess()).getRefreshTokenValidity());
     }
 
+    @Test
+    public void handshakeIsNotConditionallyCached() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        // POST responses are not cacheable, so the handshake has no ETag or Cache-Control, and always has a body
+        HttpURLConnection con = sendHandshakeRequest(null);
+        assertEquals(200, con.getResponseCode());
+        assertNull(con.getHeaderField("ETag"));
+        assertNull(con.getHeaderField("Cache-Control"));
+        con.disconnect();
+
+        con = sendHandshakeRequest("*");
+        assertEquals(200, con.getResponseCode());
+        assertTrue(con.getContentLength() != 0);
+        con.disconnect();
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static HttpURLConnection sendHandshakeRequest(String ifNoneMatch) throws Exception {
+        HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:3567/recipe/handshake")
+                .openConnection();
+        con.setRequestMethod("POST");
+        con.setConnectTimeout(1000);
+        con.setReadTimeout(1000);
+        con.setDoOutput(true);
+        con.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        con.setRequestProperty("cdi-version", Utils.getCdiVersion2_9ForTests());
+        con.setRequestProperty("rId", "session");
+        if (ifNoneMatch != null) {
+            con.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        try (OutputStream os = con.getOutputStream()) {
+            os.write("{}".getBytes(StandardCharsets.UTF_8));
+        }
+        return con;
+    }
 }
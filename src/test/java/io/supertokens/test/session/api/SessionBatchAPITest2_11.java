@@ -0,0 +1,258 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.test.session.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.webserver.api.session.SessionBatchAPI;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SessionBatchAPITest2_11 {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void getMultipleSessionsInOneRequest() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        List<String> sessionHandles = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            JsonObject userDataInJWT = new JsonObject();
+            userDataInJWT.addProperty("index", i);
+            SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId" + i,
+                    userDataInJWT, new JsonObject(), false);
+            sessionHandles.add(sessionInfo.session.handle);
+        }
+
+        HashMap<String, String> map = new HashMap<>();
+        map.put("sessionHandles",
+                sessionHandles.get(2) + ",nonExistentHandle," + sessionHandles.get(0) + "," + sessionHandles.get(1));
+        JsonObject response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/session/batch", map, 1000, 1000, null, Utils.getCdiVersion2_11ForTests(),
+                "session");
+
+        assertEquals(response.get("status").getAsString(), "OK");
+        assertEquals(response.entrySet().size(), 2);
+
+        // sessions that do not exist are left out, and the rest are in the order they were asked for
+        JsonArray sessions = response.get("sessions").getAsJsonArray();
+        assertEquals(sessions.size(), 3);
+        int[] expectedOrder = { 2, 0, 1 };
+        for (int i = 0; i < expectedOrder.length; i++) {
+            JsonObject session = sessions.get(i).getAsJsonObject();
+
+            // each session is the same as what GET /recipe/session returns
+            HashMap<String, String> singleMap = new HashMap<>();
+            singleMap.put("sessionHandle", sessionHandles.get(expectedOrder[i]));
+            JsonObject singleResponse = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/session", singleMap, 1000, 1000, null,
+                    Utils.getCdiVersion2_11ForTests(), "session");
+            singleResponse.remove("status");
+            assertEquals(session, singleResponse);
+
+            assertEquals(session.get("sessionHandle").getAsString(), sessionHandles.get(expectedOrder[i]));
+            assertEquals(session.get("userDataInJWT").getAsJsonObject().get("index").getAsInt(), expectedOrder[i]);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void badInput() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/session/batch", new HashMap<>(), 1000, 1000, null,
+                    Utils.getCdiVersion2_11ForTests(), "session");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(e.statusCode, 400);
+            assertEquals(e.getMessage(),
+                    "Http error. Status Code: 400. Message: Field name 'sessionHandles' is missing in GET request");
+        }
+
+        StringBuilder tooManyHandles = new StringBuilder();
+        for (int i = 0; i < SessionBatchAPI.MAX_BATCH_SIZE + 1; i++) {
+            tooManyHandles.append(i == 0 ? "" : ",").append("handle").append(i);
+        }
+        HashMap<String, String> map = new HashMap<>();
+        map.put("sessionHandles", tooManyHandles.toString());
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/session/batch", map, 1000, 1000, null,
+                    Utils.getCdiVersion2_11ForTests(), "session");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(e.statusCode, 400);
+            assertEquals(e.getMessage(), "Http error. Status Code: 400. Message: Field name 'sessionHandles' cannot "
+                    + "contain more than " + SessionBatchAPI.MAX_BATCH_SIZE + " elements");
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void sessionHandlesOfUserArePaginated() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Set<String> sessionHandles = new HashSet<>();
+        for (int i = 0; i < 7; i++) {
+            sessionHandles.add(Session.createNewSession(process.getProcess(), "userId", new JsonObject(),
+                    new JsonObject(), false).session.handle);
+        }
+        Session.createNewSession(process.getProcess(), "userId2", new JsonObject(), new JsonObject(), false);
+
+        Set<String> seen = new HashSet<>();
+        String paginationToken = null;
+        String firstPaginationToken = null;
+        int numberOfPages = 0;
+        do {
+            HashMap<String, String> map = new HashMap<>();
+            map.put("userId", "userId");
+            map.put("limit", "3");
+            if (paginationToken != null) {
+                map.put("paginationToken", paginationToken);
+            }
+            JsonObject response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/session/user", map, 1000, 1000, null,
+                    Utils.getCdiVersion2_11ForTests(), "session");
+            assertEquals(response.get("status").getAsString(), "OK");
+            JsonArray page = response.get("sessionHandles").getAsJsonArray();
+            assertTrue(page.size() <= 3);
+            page.forEach(handle -> assertTrue(seen.add(handle.getAsString())));
+            paginationToken = response.has("nextPaginationToken") ? response.get("nextPaginationToken").getAsString()
+                    : null;
+            if (firstPaginationToken == null) {
+                firstPaginationToken = paginationToken;
+            }
+            numberOfPages++;
+        } while (paginationToken != null);
+
+        assertEquals(numberOfPages, 3);
+        assertEquals(seen, sessionHandles);
+
+        // without limit and paginationToken, all the session handles are returned
+        HashMap<String, String> map = new HashMap<>();
+        map.put("userId", "userId");
+        JsonObject response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/session/user", map, 1000, 1000, null, Utils.getCdiVersion2_11ForTests(),
+                "session");
+        assertEquals(response.get("sessionHandles").getAsJsonArray().size(), 7);
+        assertFalse(response.has("nextPaginationToken"));
+
+        map.put("paginationToken", "invalid");
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/session/user", map, 1000, 1000, null,
+                    Utils.getCdiVersion2_11ForTests(), "session");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(e.statusCode, 400);
+            assertEquals(e.getMessage(), "Http error. Status Code: 400. Message: invalid pagination token");
+        }
+
+        // a pagination token cannot be used to list the sessions of another user
+        map.put("userId", "userId2");
+        map.put("paginationToken", firstPaginationToken);
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/session/user", map, 1000, 1000, null,
+                    Utils.getCdiVersion2_11ForTests(), "session");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(e.statusCode, 400);
+            assertEquals(e.getMessage(), "Http error. Status Code: 400. Message: invalid pagination token");
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void notAvailableWithOlderCdiVersions() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 3; i++) {
+            Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject(), false);
+        }
+
+        HashMap<String, String> map = new HashMap<>();
+        map.put("sessionHandles", "handle");
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/session/batch", map, 1000, 1000, null,
+                    Utils.getCdiVersion2_10ForTests(), "session");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(e.statusCode, 400);
+            assertEquals(e.getMessage(),
+                    "Http error. Status Code: 400. Message: cdi-version 2.10 does not support this API");
+        }
+
+        // older versions ignore limit, and get all the session handles
+        map = new HashMap<>();
+        map.put("userId", "userId");
+        map.put("limit", "1");
+        JsonObject response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/session/user", map, 1000, 1000, null, Utils.getCdiVersion2_10ForTests(),
+                "session");
+        assertEquals(response.get("sessionHandles").getAsJsonArray().size(), 3);
+        assertFalse(response.has("nextPaginationToken"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
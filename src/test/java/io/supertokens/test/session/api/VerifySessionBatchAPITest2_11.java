@@ -0,0 +1,261 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.session.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.session.accessToken.AccessTokenSigningKey;
+import io.supertokens.session.jwt.JWT;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.webserver.api.session.VerifySessionBatchAPI;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class VerifySessionBatchAPITest2_11 {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void verifyMultipleSessionsInOneRequest() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+
+        JsonArray sessions = new JsonArray();
+        for (int i = 0; i < 5; i++) {
+            JsonObject sessionRequest = new JsonObject();
+            sessionRequest.addProperty("userId", "userId" + i);
+            sessionRequest.add("userDataInJWT", userDataInJWT);
+            sessionRequest.add("userDataInDatabase", new JsonObject());
+            sessionRequest.addProperty("enableAntiCsrf", false);
+            JsonObject sessionInfo = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/session", sessionRequest, 1000, 1000, null,
+                    Utils.getCdiVersion2_11ForTests(), "session");
+
+            JsonObject item = new JsonObject();
+            item.addProperty("accessToken",
+                    sessionInfo.get("accessToken").getAsJsonObject().get("token").getAsString());
+            item.addProperty("doAntiCsrfCheck", false);
+            sessions.add(item);
+        }
+        JsonObject invalidItem = new JsonObject();
+        invalidItem.addProperty("accessToken", "invalidToken");
+        invalidItem.addProperty("doAntiCsrfCheck", false);
+        sessions.add(invalidItem);
+
+        JsonObject request = new JsonObject();
+        request.add("sessions", sessions);
+        request.addProperty("enableAntiCsrf", false);
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/session/verify/batch", request, 1000, 1000, null,
+                Utils.getCdiVersion2_11ForTests(), "session");
+
+        assertEquals(response.get("status").getAsString(), "OK");
+        assertNotNull(response.get("jwtSigningPublicKey").getAsString());
+        assertTrue(response.has("jwtSigningPublicKeyExpiryTime"));
+        assertTrue(response.has("jwtSigningPublicKeyList"));
+        assertEquals(response.entrySet().size(), 5);
+
+        // results are in the same order as the input
+        JsonArray results = response.get("sessions").getAsJsonArray();
+        assertEquals(results.size(), 6);
+        for (int i = 0; i < 5; i++) {
+            JsonObject result = results.get(i).getAsJsonObject();
+            assertEquals(result.get("status").getAsString(), "OK");
+            assertEquals(result.get("session").getAsJsonObject().get("userId").getAsString(), "userId" + i);
+            assertEquals(result.get("session").getAsJsonObject().get("userDataInJWT").getAsJsonObject(),
+                    userDataInJWT);
+            assertFalse(result.has("jwtSigningPublicKeyList"));
+        }
+        assertEquals(results.get(5).getAsJsonObject().get("status").getAsString(), "TRY_REFRESH_TOKEN");
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void errorWhileVerifyingOneSessionOnlyFailsThatSession() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JsonObject sessionRequest = new JsonObject();
+        sessionRequest.addProperty("userId", "userId");
+        sessionRequest.add("userDataInJWT", new JsonObject());
+        sessionRequest.add("userDataInDatabase", new JsonObject());
+        sessionRequest.addProperty("enableAntiCsrf", false);
+        JsonObject sessionInfo = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/session", sessionRequest, 1000, 1000, null,
+                Utils.getCdiVersion2_11ForTests(), "session");
+
+        // a correctly signed token whose payload cannot be read
+        JsonObject payload = new JsonObject();
+        payload.addProperty("sessionHandle", "sessionHandle");
+        payload.addProperty("userId", "userId");
+        payload.addProperty("refreshTokenHash1", "refreshTokenHash1");
+        payload.addProperty("userData", "notAnObject");
+        payload.addProperty("expiryTime", System.currentTimeMillis() + 3600000);
+        payload.addProperty("timeCreated", System.currentTimeMillis());
+        payload.addProperty("lmrt", System.currentTimeMillis());
+        String badToken = JWT.createJWT(payload,
+                AccessTokenSigningKey.getInstance(process.getProcess()).getLatestIssuedKey().privateKey,
+                AccessToken.VERSION.V2);
+
+        JsonArray sessions = new JsonArray();
+        JsonObject badItem = new JsonObject();
+        badItem.addProperty("accessToken", badToken);
+        badItem.addProperty("doAntiCsrfCheck", false);
+        sessions.add(badItem);
+        JsonObject goodItem = new JsonObject();
+        goodItem.addProperty("accessToken",
+                sessionInfo.get("accessToken").getAsJsonObject().get("token").getAsString());
+        goodItem.addProperty("doAntiCsrfCheck", false);
+        sessions.add(goodItem);
+
+        JsonObject request = new JsonObject();
+        request.add("sessions", sessions);
+        request.addProperty("enableAntiCsrf", false);
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/session/verify/batch", request, 1000, 1000, null,
+                Utils.getCdiVersion2_11ForTests(), "session");
+
+        assertEquals(response.get("status").getAsString(), "OK");
+        JsonArray results = response.get("sessions").getAsJsonArray();
+        assertEquals(results.size(), 2);
+        assertEquals(results.get(0).getAsJsonObject().get("status").getAsString(),
+                VerifySessionBatchAPI.INTERNAL_ERROR_STATUS);
+        assertEquals(results.get(1).getAsJsonObject().get("status").getAsString(), "OK");
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void notAvailableWithOlderCdiVersions() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JsonObject request = new JsonObject();
+        request.add("sessions", new JsonArray());
+        request.addProperty("enableAntiCsrf", false);
+        try {
+            HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/session/verify/batch", request, 1000, 1000, null,
+                    Utils.getCdiVersion2_10ForTests(), "session");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(e.statusCode, 400);
+            assertEquals(e.getMessage(),
+                    "Http error. Status Code: 400. Message: cdi-version 2.10 does not support this API");
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void badInput() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        {
+            JsonObject request = new JsonObject();
+            request.addProperty("enableAntiCsrf", false);
+            try {
+                HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                        "http://localhost:3567/recipe/session/verify/batch", request, 1000, 1000, null,
+                        Utils.getCdiVersion2_11ForTests(), "session");
+                fail();
+            } catch (HttpResponseException e) {
+                assertEquals(e.statusCode, 400);
+                assertEquals(e.getMessage(),
+                        "Http error. Status Code: 400. Message: Field name 'sessions' is invalid in JSON input");
+            }
+        }
+
+        {
+            JsonArray sessions = new JsonArray();
+            JsonObject item = new JsonObject();
+            item.addProperty("doAntiCsrfCheck", false);
+            sessions.add(item);
+            JsonObject request = new JsonObject();
+            request.add("sessions", sessions);
+            request.addProperty("enableAntiCsrf", false);
+            try {
+                HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                        "http://localhost:3567/recipe/session/verify/batch", request, 1000, 1000, null,
+                        Utils.getCdiVersion2_11ForTests(), "session");
+                fail();
+            } catch (HttpResponseException e) {
+                assertEquals(e.statusCode, 400);
+                assertEquals(e.getMessage(),
+                        "Http error. Status Code: 400. Message: Field name 'accessToken' is invalid in JSON input");
+            }
+        }
+
+        {
+            JsonArray sessions = new JsonArray();
+            for (int i = 0; i <= VerifySessionBatchAPI.MAX_BATCH_SIZE; i++) {
+                JsonObject item = new JsonObject();
+                item.addProperty("accessToken", "token");
+                item.addProperty("doAntiCsrfCheck", false);
+                sessions.add(item);
+            }
+            JsonObject request = new JsonObject();
+            request.add("sessions", sessions);
+            request.addProperty("enableAntiCsrf", false);
+            try {
+                HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                        "http://localhost:3567/recipe/session/verify/batch", request, 1000, 1000, null,
+                        Utils.getCdiVersion2_11ForTests(), "session");
+                fail();
+            } catch (HttpResponseException e) {
+                assertEquals(e.statusCode, 400);
+                assertEquals(e.getMessage(), "Http error. Status Code: 400. Message: Field name 'sessions' cannot "
+                        + "contain more than " + VerifySessionBatchAPI.MAX_BATCH_SIZE + " elements");
+            }
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}